@@ -9,6 +9,7 @@ import org.mini.gui.event.GChildrenListener;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
+import java.awt.image.ImageRegistry;
 import java.util.function.Predicate;
 
 public class EmuForm extends GForm implements GChildrenListener {
@@ -332,6 +333,12 @@ public class EmuForm extends GForm implements GChildrenListener {
                 }
                 break;
             }
+            case Glfw.GLFW_KEY_F12: {
+                if (action == Glfw.GLFW_PRESS && ImageRegistry.isEnabled()) {
+                    ImageRegistry.dump(System.out, 30);
+                }
+                break;
+            }
         }
 
     }
@@ -4,17 +4,32 @@ import org.mini.gui.*;
 import org.mini.gui.callback.GCallBack;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.ImagePool;
+import java.awt.image.ImageRegistry;
+import java.util.ArrayList;
 
 public class Canvas extends Component {
     BufferedImage bimg;
+    //images replaced by setSize, disposed by the ui thread once no frame presents them
+    final ArrayList<BufferedImage> retired = new ArrayList<>();
 
     public Canvas() {
         GObject peer = new GCanvas(GCallBack.getInstance().getApplication().getForm(), 0, 0, 1, 1) {
             public boolean paint(long vg) {
+                //retired before this frame , the last frame presenting them has ended
+                disposeRetired();
+                BufferedImage bimg = Canvas.this.bimg;
                 if (bimg != null) {
                     //bimg.setRGB(bimg.getWidth() / 2, bimg.getHeight() / 2, 0xffffffff);
-                    bimg.getImage().updateImage();
+                    //upload only if something drawn since last frame,
+                    //ImageMutable update the whole texture, so the dirty bounds decide upload or not
+                    if (bimg.takeDirtyBounds(null)) {
+                        bimg.getImage().updateImage();
+                    }
                     GToolkit.drawImage(vg, bimg.getImage(), getX(), getY(), getW(), getH(), false, 1.0f);
+                    if (ImageRegistry.isEnabled()) {
+                        ImageRegistry.touch(bimg);
+                    }
                     GForm.flush();
                 }
                 //GToolkit.drawRect(vg, getX(), getY(), getW(), getH(), GToolkit.getStyle().getHighColor(), false);
@@ -38,7 +53,28 @@ public class Canvas extends Component {
     public void setSize(int w, int h) {
         super.setSize(w, h);
         getPeer().getParent().reAlign();
+        BufferedImage old = bimg;
         bimg = null;
+        if (old != null) {
+            //the ui thread may be presenting it now , pixels returned to pool after that frame
+            synchronized (retired) {
+                retired.add(old);
+            }
+        }
+    }
+
+    void disposeRetired() {
+        BufferedImage[] dead;
+        synchronized (retired) {
+            if (retired.isEmpty()) {
+                return;
+            }
+            dead = retired.toArray(new BufferedImage[retired.size()]);
+            retired.clear();
+        }
+        for (BufferedImage img : dead) {
+            ImagePool.recycle(img);
+        }
     }
 
     @Override
@@ -46,6 +82,9 @@ public class Canvas extends Component {
         if (bimg == null) {
             bimg = new BufferedImage((int) getPeer().getW(), (int) getPeer().getH(), BufferedImage.TYPE_INT_ARGB);
         }
-        return bimg.getGraphics();
+        //shared with the present of ui thread , never thread confined
+        //a new graphics each call , created from the one of the image which is never drawn with so it keeps
+        //the identity transform and full clip, a caller never sees the state left by another
+        return bimg.createGraphics(false).create();
     }
 }
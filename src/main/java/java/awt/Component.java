@@ -105,6 +105,38 @@ public class Component implements ImageObserver, MenuContainer,
     public Graphics getGraphics() {
         if (gGraphics == null) {
             gGraphics = new Graphics(this.peer, GCallBack.getInstance().getNvContext()) {
+                /**
+                 * the peer draws a whole image only, so only an unflipped whole source is drawn ,
+                 * a part of the image or a flipped one throws UnsupportedOperationException,
+                 * draw it to a BufferedImage first
+                 */
+                @Override
+                public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+                                         int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+                    if (sx1 != 0 || sy1 != 0 || sx2 != img.getWidth(observer) || sy2 != img.getHeight(observer)
+                            || dx2 < dx1 || dy2 < dy1) {
+                        throw new UnsupportedOperationException("graphics of a component draws a whole unflipped image only, "
+                                + "draw a part or a flipped image through a BufferedImage");
+                    }
+                    return drawImage(img, dx1, dy1, dx2 - dx1, dy2 - dy1, observer);
+                }
+
+                /**
+                 * the peer graphics is one per component
+                 */
+                @Override
+                public Graphics create() {
+                    throw new UnsupportedOperationException("graphics of a component can't be copied, use getGraphics()");
+                }
+
+                /**
+                 * nothing kept of the frame drawn by the peer , it's painted again each frame, so nothing to copy
+                 */
+                @Override
+                public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+                    throw new UnsupportedOperationException("graphics of a component can't read back pixels, "
+                            + "copy the area in a BufferedImage such as the one of Canvas");
+                }
             };
         }
         return gGraphics;
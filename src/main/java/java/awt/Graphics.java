@@ -21,10 +21,18 @@ public abstract class Graphics {
     protected Font font;
     protected FontMetrics fontMetrics;
 
+    //edge crossings of a scanline in fillPolygon, grows only
+    private double[] polygonCross = new double[8];
+
     public Graphics(GObject master, long context) {
         gPeer = new GGraphics(master, context);
     }
 
+    /**
+     * a new graphics of the same target , with the color, font, clip and transform of this one
+     */
+    public abstract Graphics create();
+
     public boolean drawImage(Image img, AffineTransform transform,
                              ImageObserver observer) {
         gPeer.drawImage(img.peer, (int) transform.getScaleX(), (int) transform.getScaleY(), Nanovg.NVG_ALIGN_LEFT | Nanovg.NVG_ALIGN_TOP);
@@ -43,6 +51,13 @@ public abstract class Graphics {
         return true;
     }
 
+    /**
+     * source rectangle sx1,sy1 - sx2,sy2 scaled to destination rectangle dx1,dy1 - dx2,dy2, a swapped corner pair flips
+     * the peer can't cut or flip an image, so each graphics draws it from pixels
+     */
+    public abstract boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+                                      int sx1, int sy1, int sx2, int sy2, ImageObserver observer);
+
     public void setFont(Font awtFont) {
         this.font = awtFont;
     }
@@ -113,6 +128,10 @@ public abstract class Graphics {
         fillArc(x, y, width, height, 0, 360);
     }
 
+    public void drawOval(int x, int y, int width, int height) {
+        drawArc(x, y, width, height, 0, 360);
+    }
+
 
     public void fillRect(int x, int y, int w, int h) {
         x += transX;
@@ -127,13 +146,63 @@ public abstract class Graphics {
     }
 
     public void drawPolygon(int[] x, int[] y, int nPoints) {
-        throw new RuntimeException("not implementation yet.");
+        nPoints = Math.min(nPoints, Math.min(x.length, y.length));
+        for (int i = 0; i < nPoints; i++) {
+            int j = i + 1 == nPoints ? 0 : i + 1;
+            drawLine(x[i], y[i], x[j], y[j]);
+        }
     }
 
+    /**
+     * even-odd fill by one fillRect per span , a pixel is filled if its center is inside
+     */
     public void fillPolygon(int[] x, int[] y, int nPoints) {
-        throw new RuntimeException("not implementation yet.");
+        nPoints = Math.min(nPoints, Math.min(x.length, y.length));
+        if (nPoints < 3) {
+            return;
+        }
+        int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < nPoints; i++) {
+            if (y[i] < minY) minY = y[i];
+            if (y[i] > maxY) maxY = y[i];
+        }
+        double[] cross = polygonCross;
+        if (cross.length < nPoints) {
+            cross = polygonCross = new double[nPoints];
+        }
+        for (int row = minY; row < maxY; row++) {
+            double cy = row + 0.5;
+            int n = 0;
+            for (int i = 0; i < nPoints; i++) {
+                int j = i + 1 == nPoints ? 0 : i + 1;
+                int y1 = Math.min(y[i], y[j]), y2 = Math.max(y[i], y[j]);
+                if (row < y1 || row >= y2) {
+                    continue;
+                }
+                double c = x[i] + (double) (x[j] - x[i]) * (cy - y[i]) / (y[j] - y[i]);
+                int p = n++;
+                while (p > 0 && cross[p - 1] > c) {
+                    cross[p] = cross[p - 1];
+                    p--;
+                }
+                cross[p] = c;
+            }
+            for (int p = 0; p + 1 < n; p += 2) {
+                //pixels whose center is in cross[p] .. cross[p + 1]
+                int l = (int) Math.ceil(cross[p] - 0.5);
+                int r = (int) Math.ceil(cross[p + 1] - 0.5);
+                if (l < r) {
+                    fillRect(l, row, r - l, 1);
+                }
+            }
+        }
     }
 
+    /**
+     * copy a rectangle by dx,dy , the peer can't read back pixels, so each graphics copies its own
+     */
+    public abstract void copyArea(int x, int y, int width, int height, int dx, int dy);
+
     public void clearRect(int x, int y, int width, int height) {
         x += transX;
         y += transY;
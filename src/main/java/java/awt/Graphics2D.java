@@ -6,6 +6,11 @@ import java.awt.geom.AffineTransform;
 
 public abstract class Graphics2D extends Graphics {
     protected AffineTransform transform = new AffineTransform();
+    //transform is more than an integer translation, transX transY are its translation rounded down
+    protected boolean complexTransform;
+    //rectangle corners of deviceBounds and the device clip bounds under a complex transform, reused per graphics
+    private final double[] corners = new double[8];
+    protected final int[] clipBounds = new int[4];
 
     public Graphics2D(GObject master, long context) {
         super(master, context);
@@ -16,21 +21,127 @@ public abstract class Graphics2D extends Graphics {
         return transform;
     }
 
+    public void setTransform(AffineTransform tx) {
+        transform.setTransform(tx);
+        transformChanged();
+    }
 
-    public void rotate(double theta) {
+    /**
+     * concatenate tx to the transform , tx applied first
+     *
+     * @param tx
+     */
+    public void transform(AffineTransform tx) {
+        transform.concatenate(tx);
+        transformChanged();
+    }
 
+    public void translate(int x, int y) {
+        transform.translate(x, y);
+        transformChanged();
     }
 
-    public void rotate(double theta, double x, double y) {
+    public void translate(double tx, double ty) {
+        transform.translate(tx, ty);
+        transformChanged();
+    }
 
+    public void rotate(double theta) {
+        transform.rotate(theta);
+        transformChanged();
     }
 
-    public void scale(double sx, double sy) {
+    public void rotate(double theta, double x, double y) {
+        transform.rotate(theta, x, y);
+        transformChanged();
+    }
 
+    public void scale(double sx, double sy) {
+        transform.scale(sx, sy);
+        transformChanged();
     }
 
     public void shear(double shx, double shy) {
+        transform.shear(shx, shy);
+        transformChanged();
+    }
+
+    /**
+     * keep transX transY and complexTransform same as transform
+     */
+    protected void transformChanged() {
+        double tx = transform.getTranslateX();
+        double ty = transform.getTranslateY();
+        transX = (int) Math.floor(tx);
+        transY = (int) Math.floor(ty);
+        complexTransform = (transform.getType() & ~AffineTransform.TYPE_TRANSLATION) != 0 || transX != tx || transY != ty;
+    }
+
+    public void clipRect(int x, int y, int w, int h) {
+        if (!complexTransform) {
+            super.clipRect(x, y, w, h);
+            return;
+        }
+        int[] b = deviceBounds(x, y, w, h, clipBounds);
+        int x1 = Math.max(b[0], clipX);
+        int y1 = Math.max(b[1], clipY);
+        int x2 = Math.min(b[0] + b[2], clipX + clipW);
+        int y2 = Math.min(b[1] + b[3], clipY + clipH);
+        if (x2 <= x1 || y2 <= y1) {
+            clipW = clipH = 0;
+            return;
+        }
+        clipX = x1;
+        clipY = y1;
+        clipW = x2 - x1;
+        clipH = y2 - y1;
+    }
+
+    /**
+     * color, font, clip and transform of this graphics to g , for create()
+     *
+     * @param g
+     */
+    protected void copyStateTo(Graphics2D g) {
+        g.awtColor = awtColor;
+        g.backgroundColor = backgroundColor;
+        g.font = font;
+        g.fontMetrics = fontMetrics;
+        g.transform.setTransform(transform);
+        g.transX = transX;
+        g.transY = transY;
+        g.complexTransform = complexTransform;
+        g.clipX = clipX;
+        g.clipY = clipY;
+        g.clipW = clipW;
+        g.clipH = clipH;
+    }
 
+    /**
+     * bounds of a user space rectangle after transform
+     *
+     * @param out x, y, w, h
+     * @return out
+     */
+    protected int[] deviceBounds(int x, int y, int w, int h, int[] out) {
+        double[] p = corners;
+        p[0] = p[4] = x;
+        p[1] = p[3] = y;
+        p[2] = p[6] = x + w;
+        p[5] = p[7] = y + h;
+        transform.transform(p, 0, p, 0, 4);
+        double minX = p[0], maxX = p[0], minY = p[1], maxY = p[1];
+        for (int i = 2; i < 8; i += 2) {
+            minX = Math.min(minX, p[i]);
+            maxX = Math.max(maxX, p[i]);
+            minY = Math.min(minY, p[i + 1]);
+            maxY = Math.max(maxY, p[i + 1]);
+        }
+        out[0] = (int) Math.floor(minX);
+        out[1] = (int) Math.floor(minY);
+        out[2] = (int) Math.ceil(maxX) - out[0];
+        out[3] = (int) Math.ceil(maxY) - out[1];
+        return out;
     }
 
 }
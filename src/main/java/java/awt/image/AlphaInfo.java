@@ -0,0 +1,108 @@
+package java.awt.image;
+
+import java.awt.Transparency;
+import java.util.Arrays;
+
+/**
+ * alpha classification of image pixels, scanned from R,G,B,A bytes
+ * <p>
+ * per row span of not transparent pixels, spanStart[y] >= spanEnd[y] means the row is transparent
+ * for OPAQUE and BITMASK images, the pixels in the span are either copied or skipped when drawn
+ * <p>
+ * the bounding box of not transparent pixels trims the area of blit
+ */
+class AlphaInfo {
+    final int transparency;
+    final int[] spanStart, spanEnd;//x2 exclusive
+    //bounding box of not transparent pixels, x2 y2 exclusive, empty when x2 <= x1
+    final int boundsX1, boundsY1, boundsX2, boundsY2;
+    //opaque runs of BITMASK image, encoded on first blit
+    volatile OpaqueRuns runs;
+
+    AlphaInfo(int transparency, int[] spanStart, int[] spanEnd) {
+        this.transparency = transparency;
+        this.spanStart = spanStart;
+        this.spanEnd = spanEnd;
+        int x1 = Integer.MAX_VALUE, y1 = -1, x2 = 0, y2 = 0;
+        for (int y = 0; y < spanStart.length; y++) {
+            if (spanEnd[y] > spanStart[y]) {
+                if (y1 < 0) y1 = y;
+                y2 = y + 1;
+                if (spanStart[y] < x1) x1 = spanStart[y];
+                if (spanEnd[y] > x2) x2 = spanEnd[y];
+            }
+        }
+        if (y1 < 0) {
+            x1 = y1 = 0;
+        }
+        boundsX1 = x1;
+        boundsY1 = y1;
+        boundsX2 = x2;
+        boundsY2 = y2;
+    }
+
+    boolean isEmpty() {
+        return boundsX2 <= boundsX1;
+    }
+
+    /**
+     * opaque runs of the pixels this was scanned from , encoded on first call
+     *
+     * @param src    bytes of pixel owner
+     * @param srcPos pixel index of image 0,0 in pixel owner
+     * @param stride pixels per row of pixel owner
+     * @return
+     */
+    OpaqueRuns getRuns(byte[] src, int srcPos, int stride) {
+        OpaqueRuns r = runs;
+        if (r == null) {
+            //two threads may encode the same runs , either one kept
+            r = OpaqueRuns.encode(src, srcPos, stride, this);
+            runs = r;
+        }
+        return r;
+    }
+
+    /**
+     * scan bytes of a rectangle
+     *
+     * @param src
+     * @param srcPos pixel index of first pixel
+     * @param stride pixels per row
+     * @param w
+     * @param h
+     * @return
+     */
+    static AlphaInfo scan(byte[] src, int srcPos, int stride, int w, int h) {
+        int[] spanStart = new int[h];
+        int[] spanEnd = new int[h];
+        boolean transparent = false, translucent = false;
+        for (int y = 0; y < h; y++) {
+            int rowPos = ((srcPos + y * stride) << 2) + 3;
+            int first = -1, last = -1;
+            for (int x = 0, s = rowPos; x < w; x++, s += 4) {
+                int a = src[s] & 0xff;
+                if (a == 0) {
+                    transparent = true;
+                } else {
+                    if (first < 0) first = x;
+                    last = x;
+                    if (a != 0xff) translucent = true;
+                }
+            }
+            spanStart[y] = first < 0 ? 0 : first;
+            spanEnd[y] = last + 1;
+        }
+        int t = translucent ? Transparency.TRANSLUCENT : transparent ? Transparency.BITMASK : Transparency.OPAQUE;
+        return new AlphaInfo(t, spanStart, spanEnd);
+    }
+
+    /**
+     * all pixels opaque
+     */
+    static AlphaInfo opaque(int w, int h) {
+        int[] spanEnd = new int[h];
+        Arrays.fill(spanEnd, w);
+        return new AlphaInfo(Transparency.OPAQUE, new int[h], spanEnd);
+    }
+}
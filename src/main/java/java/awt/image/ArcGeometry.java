@@ -0,0 +1,181 @@
+package java.awt.image;
+
+/**
+ * ellipse and arc coverage in a w x h box, no trigonometry per pixel
+ * <p>
+ * a pixel is covered if its center is inside the ellipse, tested in doubled coordinates
+ * relative to the center: X = 2 * i + 1 - w , Y = 2 * j + 1 - h
+ * <p>
+ * an arc is the ellipse cut by the rays of start angle and end angle, each ray is one half plane,
+ * so a row of the arc is one or two intervals solved directly from the ray
+ */
+class ArcGeometry {
+
+    static ThreadLocal<int[]> leftBuffer = new ThreadLocal<>();
+
+    /**
+     * first covered pixel of each row, row j covers left[j] .. w - 1 - left[j] , empty if left[j] > w - 1 - left[j]
+     * the result buffer is per thread, valid until next call from the same thread
+     *
+     * @param w
+     * @param h
+     * @return
+     */
+    static int[] ellipseLeft(int w, int h) {
+        int[] left = leftBuffer.get();
+        if (left == null || left.length < h) {
+            left = new int[h < 64 ? 64 : h];
+            leftBuffer.set(left);
+        }
+        long w2 = (long) w * w, h2 = (long) h * h, lim = w2 * h2;
+        int i = (w + 1) / 2;//empty
+        for (int j = 0, jmax = (h - 1) / 2; j <= jmax; j++) {
+            long y = 2 * j + 1 - h;
+            long yy = y * y * w2;
+            //the span only grows toward the middle row
+            while (i > 0) {
+                long x = 2 * (i - 1) + 1 - w;
+                if (x * x * h2 + yy <= lim) {
+                    i--;
+                } else {
+                    break;
+                }
+            }
+            left[j] = i;
+            left[h - 1 - j] = i;
+        }
+        return left;
+    }
+
+    /**
+     * part of the ellipse box between two angles, counter clockwise from start
+     * angles are of the box like java.awt: 45 degrees points to the upper right corner
+     */
+    static class Sector {
+        int w, h;
+        boolean wide;//more than 180 degrees, union of half planes
+        //ray vectors , y up
+        double sx, sy, ex, ey;
+
+        /**
+         * set to an arc , a graphics keeps one and sets it for each arc drawn
+         *
+         * @param w
+         * @param h
+         * @param startAngle degrees
+         * @param arcAngle   degrees, 0 < arcAngle < 360
+         * @return this
+         */
+        Sector set(int w, int h, int startAngle, int arcAngle) {
+            this.w = w;
+            this.h = h;
+            double s = Math.toRadians(startAngle);
+            double e = Math.toRadians(startAngle + arcAngle);
+            sx = Math.cos(s) * w;
+            sy = Math.sin(s) * h;
+            ex = Math.cos(e) * w;
+            ey = Math.sin(e) * h;
+            wide = arcAngle > 180;
+            return this;
+        }
+
+        /**
+         * covered pixel intervals of row j inside lo..hi
+         *
+         * @param j
+         * @param lo
+         * @param hi
+         * @param out pairs of first , last
+         * @return number of intervals, 0 - 2
+         */
+        int row(int j, int lo, int hi, int[] out) {
+            double y = 2 * j + 1 - h;
+            //start ray: cross(s, p) >= 0  <=>  -sy * X >= sx * Y
+            int aLo, aHi;
+            if (sy > 0) {
+                aLo = Integer.MIN_VALUE;
+                aHi = floorPixel(-sx * y / sy);
+            } else if (sy < 0) {
+                aLo = ceilPixel(-sx * y / sy);
+                aHi = Integer.MAX_VALUE;
+            } else if (-sx * y >= 0) {
+                aLo = Integer.MIN_VALUE;
+                aHi = Integer.MAX_VALUE;
+            } else {
+                aLo = 1;
+                aHi = 0;
+            }
+            //end ray: cross(p, e) >= 0  <=>  ey * X >= -ex * Y
+            int bLo, bHi;
+            if (ey > 0) {
+                bLo = ceilPixel(-ex * y / ey);
+                bHi = Integer.MAX_VALUE;
+            } else if (ey < 0) {
+                bLo = Integer.MIN_VALUE;
+                bHi = floorPixel(-ex * y / ey);
+            } else if (ex * y >= 0) {
+                bLo = Integer.MIN_VALUE;
+                bHi = Integer.MAX_VALUE;
+            } else {
+                bLo = 1;
+                bHi = 0;
+            }
+            if (!wide) {
+                int l = Math.max(lo, Math.max(aLo, bLo));
+                int r = Math.min(hi, Math.min(aHi, bHi));
+                if (l > r) {
+                    return 0;
+                }
+                out[0] = l;
+                out[1] = r;
+                return 1;
+            }
+            int l1 = Math.max(lo, aLo), r1 = Math.min(hi, aHi);
+            int l2 = Math.max(lo, bLo), r2 = Math.min(hi, bHi);
+            if (l1 > r1) {
+                l1 = l2;
+                r1 = r2;
+                l2 = 1;
+                r2 = 0;
+            }
+            if (l1 > r1) {
+                return 0;
+            }
+            if (l2 > r2) {
+                out[0] = l1;
+                out[1] = r1;
+                return 1;
+            }
+            if (l2 < l1) {
+                int t = l1;
+                l1 = l2;
+                l2 = t;
+                t = r1;
+                r1 = r2;
+                r2 = t;
+            }
+            if (l2 <= r1 + 1) {
+                out[0] = l1;
+                out[1] = Math.max(r1, r2);
+                return 1;
+            }
+            out[0] = l1;
+            out[1] = r1;
+            out[2] = l2;
+            out[3] = r2;
+            return 2;
+        }
+
+        //pixel index of X <= x
+        private int floorPixel(double x) {
+            double i = Math.floor((x + w - 1) / 2);
+            return i < -1e9 ? -1000000000 : i > 1e9 ? 1000000000 : (int) i;
+        }
+
+        //pixel index of X >= x
+        private int ceilPixel(double x) {
+            double i = Math.ceil((x + w - 1) / 2);
+            return i < -1e9 ? -1000000000 : i > 1e9 ? 1000000000 : (int) i;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package java.awt.image;
 
-import org.mini.gl.GLMath;
 import org.mini.gui.callback.GCallBack;
 
 import javax.imageio.ImageIO;
@@ -117,34 +116,31 @@ public class BitmapFont {
 
             int tx1 = cx;
             int ty1 = cy;
-            int rx1 = clipX;
-            int ry1 = clipY;
+            int rx1 = Math.max(clipX, 0);
+            int ry1 = Math.max(clipY, 0);
             int tx2 = tx1 + cw;
             int ty2 = ty1 + chh;
-            int rx2 = rx1 + clipW;
-            int ry2 = ry1 + clipH;
+            int rx2 = Math.min(clipX + clipW, canvas.getWidth());
+            int ry2 = Math.min(clipY + clipH, canvas.getHeight());
             if (tx1 < rx1) tx1 = rx1;
             if (ty1 < ry1) ty1 = ry1;
             if (tx2 > rx2) tx2 = rx2;
             if (ty2 > ry2) ty2 = ry2;
-            tx2 -= tx1;
-            ty2 -= ty1;
-
-//    static public native int img_draw(byte[] imgCanvas, int canvasWidth,
-//                                      byte[] img, int imgWidth,
-//                                      int clipX, int clipY, int clipW, int clipH,
-//                                      float transformM00, float transformM01, float transformM02, float transformM10, float transformM11, float transformM12,
-//                                      float alpha,
-//                                      boolean bitmapFont, int fontRGB);
-
-            GLMath.img_draw(canvas.getData().array(), canvas.getWidth(),
-                    fontShap.getData().array(), fontShap.getWidth(),
-                    tx1, ty1, tx2, ty2,
-//                    x + chinfo[ARR_XOFFSET], y + chinfo[ARR_YOFFSET], chinfo[ARR_W], chinfo[ARR_H],
-                    1.0f, 0.0f, -(chinfo[ARR_X] - x) + chinfo[ARR_XOFFSET], 0.0f, 1.0f, -(chinfo[ARR_Y] - y) + chinfo[ARR_YOFFSET],
-                    1.0f,
-                    true, rgb
-            );
+            if (tx2 <= tx1 || ty2 <= ty1) {
+                return chinfo[ARR_XADVANCE];
+            }
+
+            //glyph is at integer position without scale, each row goes through the coverage kernel, img_draw not used
+            byte[] dst = canvas.getBytesForWrite();
+            int dstW = canvas.getWidth();
+            byte[] mask = fontShap.getBytesForRead();
+            int maskW = fontShap.getWidth();
+            int sx = chinfo[ARR_X] + tx1 - cx;
+            int sy = chinfo[ARR_Y] + ty1 - cy;
+            for (int ty = ty1; ty < ty2; ty++, sy++) {
+                Compositor.blendColor(mask, sy * maskW + sx, dst, ty * dstW + tx1, tx2 - tx1, rgb, 255);
+            }
+            canvas.markDirty(tx1, ty1, tx2 - tx1, ty2 - ty1);
             return chinfo[ARR_XADVANCE];
         }
         return 0;
@@ -161,9 +157,14 @@ public class BitmapFont {
 
 
     public int charsWidth(char[] str) {
+        if (str == null) return 0;
+        return charsWidth(str, 0, str.length);
+    }
+
+    public int charsWidth(char[] str, int offset, int length) {
         if (str == null) return 0;
         int w = 0;
-        for (int i = 0; i < str.length; i++) {
+        for (int i = offset, end = offset + length; i < end; i++) {
             w += charWidth(str[i]);
         }
         return w;
@@ -1,20 +1,29 @@
 package java.awt.image;
 
-import org.mini.gl.GLMath;
-import org.mini.gui.GImage;
 import org.mini.gui.ImageMutable;
 
 import javax.imageio.WritableRenderedImage;
 import java.awt.*;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 
 
 /**
  * BufferedImage bytes array dependence ImageMutable
  * <p>
  * ImageMutable is ABGR format
+ * <p>
+ * optional int[] ARGB store, for games that read and write pixels by getRGB/setRGB every frame,
+ * the int[] and the ImageMutable bytes are synchronized by one bulk conversion when the other side needed
+ * <p>
+ * getSubimage returns a view which shares the pixels of parent,
+ * the view copies its pixels out before the view or the parent is written
+ * <p>
+ * TYPE_INT_ARGB_PRE and TYPE_4BYTE_ABGR_PRE keep premultiplied bytes, translucent layers blend
+ * without divide when drawn , getRGB/setRGB and the int[] store are always straight ARGB
  */
-public class BufferedImage extends java.awt.Image implements WritableRenderedImage {
+public class BufferedImage extends java.awt.Image implements WritableRenderedImage, Transparency {
     public static final int TYPE_CUSTOM = 0;
     public static final int TYPE_INT_RGB = 1;
     public static final int TYPE_INT_ARGB = 2;
@@ -46,12 +55,48 @@ public class BufferedImage extends java.awt.Image implements WritableRenderedIma
     private static final int DCM_BGR_BLU_MASK = 0xff0000;
 
 
-    ImageMutable gimg;
+    ImageMutable gimg;//null for compact type until it drawn or presented
     Graphics2D graphics2D;
+    boolean confined;//graphics confined to the drawing thread, dirty area marked without lock
     int imageType;
+    int width, height;
+    boolean premultiplied;//bytes are premultiplied by alpha
+
+    //int ARGB store , null when not in int store mode
+    int[] argbPixels;
+    boolean intStoreNewer;//argbPixels changed, gimg not updated
+    boolean byteStoreNewer;//gimg may be changed, argbPixels not updated , or gimg colors not reduced to compact
+
+    //compact store for TYPE_USHORT_565_RGB , TYPE_BYTE_GRAY , TYPE_BYTE_INDEXED
+    //once drawn into, compact drops its pixels and gimg holds them until flush()
+    CompactRaster compact;
+    boolean compactNewer;//compact changed, gimg not updated
+
+    //sub image view: pixels are in parent at originX,originY , parent is null when this image own its pixels
+    BufferedImage parent;
+    int originX, originY;
+    //views of this image, they must copy out before this image written
+    ArrayList<WeakReference<BufferedImage>> views;
+
+    //alpha classification , null when not scanned since last write
+    volatile AlphaInfo alphaInfo;
+    int drawsSinceWrite;
+
+    //ImageRegistry record
+    String origin;
+    long createTime, lastDrawTime;
+    ImageRegistry.Entry registryEntry;
+
+    //dirty rectangle since last takeDirtyBounds(), x2 y2 exclusive, empty when dirtyX2 <= dirtyX1
+    int dirtyX1, dirtyY1, dirtyX2, dirtyY2;
 
     static final byte BYTE_PER_PIXEL = 4;
 
+    static boolean defaultIntArgbStore = "true".equals(System.getProperty("awt.image.intstore"));
+
+    //graphics of images confined to the thread drawing them, -Dawt.graphics.confined=true
+    static boolean defaultConfinedGraphics = "true".equals(System.getProperty("awt.graphics.confined"));
+
 
     public BufferedImage(int width,
                          int height,
@@ -60,32 +105,419 @@ public class BufferedImage extends java.awt.Image implements WritableRenderedIma
 //            throw new RuntimeException("Not support BufferedImage type " + imageType);
 //        }
         this.imageType = imageType;
-        gimg = GImage.createImageMutable(width, height);
+        this.width = width;
+        this.height = height;
+        this.premultiplied = isPremultipliedType(imageType);
+        if (CompactRaster.isCompactType(imageType)) {
+            compact = new CompactRaster(imageType, width, height);
+        } else {
+            gimg = ImagePool.acquire(width, height);
+        }
+        markDirty(0, 0, width, height);
+        if (defaultIntArgbStore) {
+            setIntArgbStore(true);
+        }
+        if (ImageRegistry.enabled) {
+            ImageRegistry.register(this);
+        }
+    }
+
+    /**
+     * view of root image
+     */
+    private BufferedImage(BufferedImage root, int x, int y, int width, int height) {
+        this.imageType = root.imageType;
+        this.width = width;
+        this.height = height;
+        this.premultiplied = root.premultiplied;
+        this.parent = root;
+        this.originX = x;
+        this.originY = y;
+        markDirty(0, 0, width, height);
+        root.addView(this);
+        if (ImageRegistry.enabled) {
+            ImageRegistry.register(this);
+        }
+    }
+
+    private synchronized void addView(BufferedImage view) {
+        if (views == null) {
+            views = new ArrayList<>();
+        } else if (views.size() >= 16) {
+            for (int i = views.size() - 1; i >= 0; i--) {
+                BufferedImage v = views.get(i).get();
+                if (v == null || v.parent != this) {
+                    views.remove(i);
+                }
+            }
+        }
+        views.add(new WeakReference<>(view));
+    }
+
+    /**
+     * copy pixels from parent , then this image is not a view
+     */
+    void detach() {
+        BufferedImage root = parent;
+        if (root == null) {
+            return;
+        }
+        synchronized (root) {
+            if (parent == null) {
+                return;
+            }
+            if (root.compact != null) {
+                compact = new CompactRaster(root.compact, originX, originY, width, height);
+            }
+            if (compact == null || !compact.hasPixels()) {
+                gimg = ImagePool.acquire(width, height);
+                byte[] src = root.getBytesForRead();
+                byte[] dst = gimg.getData().array();
+                int len = width * BYTE_PER_PIXEL;
+                for (int j = 0; j < height; j++) {
+                    System.arraycopy(src, ((originY + j) * root.width + originX) * BYTE_PER_PIXEL, dst, j * len, len);
+                }
+            }
+            parent = null;
+        }
+        pixelsResized();
+    }
+
+    /**
+     * all views copy their pixels out
+     */
+    private synchronized void detachViews() {
+        ArrayList<WeakReference<BufferedImage>> list = views;
+        views = null;
+        if (list != null) {
+            for (int i = 0; i < list.size(); i++) {
+                BufferedImage v = list.get(i).get();
+                if (v != null && v.parent == this) {
+                    v.detach();
+                }
+            }
+        }
+    }
+
+    /**
+     * must be called before pixels changed
+     */
+    void prepareWrite() {
+        if (parent != null) detach();
+        if (views != null) detachViews();
+        if (compact != null) ExpandCache.remove(this);
+        alphaInfo = null;
+        drawsSinceWrite = 0;
+    }
+
+    /**
+     * the image which holds the pixels, for a view it's the parent ,
+     * the view pixels start at originX,originY in it
+     *
+     * @return
+     */
+    BufferedImage getPixelOwner() {
+        BufferedImage root = parent;
+        return root != null ? root : this;
+    }
+
+    /**
+     * is this image a view of other image
+     *
+     * @return
+     */
+    public boolean isSubimageView() {
+        return parent != null;
+    }
+
+    public int getType() {
+        return imageType;
+    }
+
+    /**
+     * OPAQUE , BITMASK or TRANSLUCENT by the alpha of pixels, scanned once and kept until the image written
+     *
+     * @return
+     */
+    public int getTransparency() {
+        return getAlphaInfo(true).transparency;
+    }
+
+    /**
+     * bounding box of the pixels which are not fully transparent , kept until the image written
+     *
+     * @param r if null , a new Rectangle created
+     * @return empty rectangle if all pixels transparent
+     */
+    public Rectangle getOpaqueBounds(Rectangle r) {
+        AlphaInfo info = getAlphaInfo(true);
+        if (r == null) r = new Rectangle();
+        r.x = info.boundsX1;
+        r.y = info.boundsY1;
+        r.width = info.boundsX2 - info.boundsX1;
+        r.height = info.boundsY2 - info.boundsY1;
+        return r;
+    }
+
+    /**
+     * alpha classification of pixels
+     * an image written and drawn every frame, such as a back buffer, is not worth scanning ,
+     * so when not forced, the scan happens on the second draw after write
+     *
+     * @param force scan now
+     * @return null if not scanned
+     */
+    AlphaInfo getAlphaInfo(boolean force) {
+        AlphaInfo info = alphaInfo;
+        if (info != null) {
+            return info;
+        }
+        synchronized (this) {
+            return scanAlphaInfo(force);
+        }
+    }
+
+    private AlphaInfo scanAlphaInfo(boolean force) {
+        AlphaInfo info = alphaInfo;
+        if (info == null) {
+            if (!force && drawsSinceWrite++ == 0) {
+                return null;
+            }
+            if (compact != null && compact.palette == null) {
+                info = AlphaInfo.opaque(width, height);
+            } else {
+                BufferedImage root = parent;
+                if (root != null) {
+                    info = AlphaInfo.scan(root.getBytesForRead(), originY * root.width + originX, root.width, width, height);
+                } else {
+                    info = AlphaInfo.scan(getBytesForRead(), 0, width, width, height);
+                }
+            }
+            alphaInfo = info;
+        }
+        return info;
+    }
+
+    static boolean isPremultipliedType(int type) {
+        return type == TYPE_INT_ARGB_PRE || type == TYPE_4BYTE_ABGR_PRE;
+    }
+
+    /**
+     * the bytes of getData() and getImage() are premultiplied by alpha
+     *
+     * @return
+     */
+    public boolean isAlphaPremultiplied() {
+        return premultiplied;
+    }
+
+    /**
+     * switch int[] ARGB store on or off
+     * when on, getRGB/setRGB work on int[] directly, the bytes of ImageMutable are updated only when getData()/getImage() called
+     * compact type images not support int store
+     *
+     * @param enable
+     */
+    public synchronized void setIntArgbStore(boolean enable) {
+        if (parent != null) {
+            detach();
+        }
+        if (compact != null) {
+            return;
+        }
+        if (enable) {
+            if (argbPixels == null) {
+                argbPixels = ImagePool.acquireInts(width * height);
+                byteStoreNewer = true;
+                intStoreNewer = false;
+            }
+        } else if (argbPixels != null) {
+            syncToBytes();
+            argbPixels = null;
+            byteStoreNewer = false;
+        }
+        pixelsResized();
+    }
+
+    public boolean isIntArgbStore() {
+        return argbPixels != null;
+    }
+
+    /**
+     * set all images created after this call use int[] store or not
+     *
+     * @param enable
+     */
+    public static void setDefaultIntArgbStore(boolean enable) {
+        defaultIntArgbStore = enable;
+    }
+
+    /**
+     * the ARGB int array of this image, the caller may write it
+     * the image switch to int store mode if it not yet
+     *
+     * @return null if the image is compact type
+     */
+    public synchronized int[] getIntArgbData() {
+        prepareWrite();
+        setIntArgbStore(true);
+        if (argbPixels == null) {
+            return null;
+        }
+        syncToInts();
+        intStoreNewer = true;
+        markDirty(0, 0, width, height);
+        return argbPixels;
+    }
+
+    /**
+     * set palette of TYPE_BYTE_INDEXED image , the pixels already set keep their index
+     *
+     * @param argb at most 256 colors
+     */
+    public synchronized void setPalette(int[] argb) {
+        prepareWrite();
+        if (compact != null && compact.palette != null) {
+            if (!compact.hasPixels()) {
+                //the indices are needed to keep them
+                reduceBytes();
+                compact.fromRgba(gimg.getData().array(), 0, 0, width * height);
+                pixelsResized();
+            }
+            compact.setPalette(argb);
+            compactNewer = gimg != null;
+            markDirty(0, 0, width, height);
+        }
+    }
+
+    /**
+     * bytes used by pixels of this image
+     *
+     * @return
+     */
+    public int getPixelMemorySize() {
+        int size = 0;//a view shares the pixels of parent
+        if (gimg != null) size += width * height * BYTE_PER_PIXEL;
+        if (argbPixels != null) size += argbPixels.length * 4;
+        if (compact != null) size += compact.getMemorySize();
+        return size;
+    }
+
+    /**
+     * pixel buffers allocated or released , the running count of ImageRegistry follows
+     */
+    private void pixelsResized() {
+        if (registryEntry != null) {
+            ImageRegistry.resized(this);
+        }
+    }
+
+    /**
+     * int[] or compact -> ImageMutable bytes
+     * ImageMutable of compact image created here
+     */
+    private void syncToBytes() {
+        if (compact != null) {
+            if (!compact.hasPixels()) {
+                reduceBytes();
+                return;
+            }
+            if (gimg == null) {
+                gimg = ImagePool.acquire(width, height);
+                compactNewer = true;
+                pixelsResized();
+            }
+            if (compactNewer) {
+                compact.toRgba(0, gimg.getData().array(), 0, width * height);
+                compactNewer = false;
+            }
+        } else if (intStoreNewer) {
+            byte[] dst = store().getData().array();
+            if (premultiplied) {
+                ScanlineConverter.argbToRgbaPre(argbPixels, 0, dst, 0, argbPixels.length);
+            } else {
+                ScanlineConverter.argbToRgba(argbPixels, 0, dst, 0, argbPixels.length);
+            }
+            intStoreNewer = false;
+        }
+    }
+
+    /**
+     * ImageMutable bytes -> int[]
+     */
+    private void syncToInts() {
+        if (byteStoreNewer) {
+            byte[] src = store().getData().array();
+            if (premultiplied) {
+                ScanlineConverter.rgbaPreToArgb(src, 0, argbPixels, 0, argbPixels.length);
+            } else {
+                ScanlineConverter.rgbaToArgb(src, 0, argbPixels, 0, argbPixels.length);
+            }
+            byteStoreNewer = false;
+        }
+    }
+
+    /**
+     * the colors drawn to ImageMutable bytes of compact image reduced to the compact format
+     */
+    private void reduceBytes() {
+        if (byteStoreNewer) {
+            compact.reduceRgba(gimg.getData().array(), 0, width * height);
+            byteStoreNewer = false;
+        }
     }
 
     public Graphics2D createGraphics() {
+        return createGraphics(defaultConfinedGraphics);
+    }
+
+    /**
+     * the graphics of this image, created by the first call , later calls return the same one
+     * <p>
+     * a thread confined graphics takes no lock per primitive, it belongs to the first thread drawing,
+     * other thread using it gets IllegalStateException. the image must reach other threads only
+     * by drawing it to a shared graphics , such as the one of Canvas , which is the hand-off to present
+     *
+     * @param threadConfined
+     * @return
+     */
+    public synchronized Graphics2D createGraphics(boolean threadConfined) {
         if (graphics2D == null) {
-            graphics2D = new BufferedImageGraphics(this);
+            if (threadConfined) {
+                confined = true;
+                graphics2D = new BufferedImageGraphics(this, true);
+            } else {
+                graphics2D = new SynchronizedImageGraphics(this);
+            }
         }
         return graphics2D;
     }
 
+    /**
+     * graphics of images created later are thread confined or not
+     *
+     * @param threadConfined
+     */
+    public static void setDefaultConfinedGraphics(boolean threadConfined) {
+        defaultConfinedGraphics = threadConfined;
+    }
+
     public int getWidth() {
-        return (int) gimg.getWidth();
+        return width;
     }
 
     public int getHeight() {
-        return (int) gimg.getHeight();
+        return height;
     }
 
     @Override
     public int getWidth(ImageObserver observer) {
-        return (int) gimg.getWidth();
+        return width;
     }
 
     @Override
     public int getHeight(ImageObserver observer) {
-        return (int) gimg.getHeight();
+        return height;
     }
 
     @Override
@@ -103,48 +535,147 @@ public class BufferedImage extends java.awt.Image implements WritableRenderedIma
         return "";
     }
 
+    /**
+     * release the buffers which can be rebuilt, the pixels are kept
+     * a compact image drawn into goes back to compact pixels and its expanded bytes are released,
+     * other images keep their buffers , their pixels can't be rebuilt
+     */
     @Override
-    public void flush() {
+    public synchronized void flush() {
+        if (compact == null || parent != null) {
+            return;
+        }
+        if (views != null) {
+            detachViews();
+        }
+        if (!compact.hasPixels()) {
+            //back to compact pixels, the ImageMutable released below
+            reduceBytes();
+            compact.fromRgba(gimg.getData().array(), 0, 0, width * height);
+        }
+        compactNewer = false;
+        ExpandCache.remove(this);
+        if (gimg != null) {
+            ImagePool.release(gimg);
+            gimg = null;
+        }
+        pixelsResized();
+    }
 
+    /**
+     * return the pixel buffers to ImagePool , the pixels are lost
+     * only through ImagePool.recycle() for the old image of a resized Canvas after its last present,
+     * the buffers may be handed to a new image at once
+     * views of this image copy out their pixels first
+     */
+    synchronized void dispose() {
+        if (views != null) {
+            detachViews();
+        }
+        if (parent != null) {
+            return;
+        }
+        if (compact != null) {
+            flush();
+            return;
+        }
+        if (argbPixels != null) {
+            ImagePool.releaseInts(argbPixels);
+            argbPixels = null;
+            intStoreNewer = byteStoreNewer = false;
+        }
+        if (gimg != null) {
+            ImagePool.release(gimg);
+            gimg = null;
+            alphaInfo = null;
+        }
+        pixelsResized();
     }
 
+    /**
+     * a view shares pixels of this image, no pixels copied until the view or this image written
+     *
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @return
+     */
     public BufferedImage getSubimage(int x, int y, int width, int height) {
         if (x == 0 && y == 0 && width == getWidth() && height == getHeight()) {
             return this;
         }
-        BufferedImage nimg = new BufferedImage(width, height, TYPE_INT_ARGB);
-//        Graphics g2d = nimg.getGraphics();
-//        g2d.drawImage(this, -x, -y, null);
-
         if (x < 0) x = 0;
         if (y < 0) y = 0;
         if (x + width > this.getWidth()) width = this.getWidth() - x;
         if (y + height > this.getHeight()) height = this.getHeight() - y;
-        byte[] src = gimg.getData().array();
-        byte[] dst = nimg.getData().array();
+        if (width <= 0) width = 1;
+        if (height <= 0) height = 1;
 
-        int len = width * BYTE_PER_PIXEL;
-        for (int srcY = y, imax = srcY + height, dstY = 0; srcY < imax; srcY++, dstY++) {
-            int srcRowStartBytes = (srcY * getWidth() + x) * BYTE_PER_PIXEL;
-            int dstRowStartBytes = (dstY * width) * BYTE_PER_PIXEL;
-            System.arraycopy(src, srcRowStartBytes, dst, dstRowStartBytes, len);
+        BufferedImage root = parent;
+        if (root != null) {
+            return new BufferedImage(root, originX + x, originY + y, width, height);
         }
-        return nimg;
+        return new BufferedImage(this, x, y, width, height);
     }
 
+    /**
+     * set ARGB pixels row by row, the part out of image is ignored
+     *
+     * @param startX
+     * @param startY
+     * @param w
+     * @param h
+     * @param argbArray
+     * @param offset     index of first pixel in argbArray
+     * @param scanlength ints per row in argbArray
+     */
     public void setRGB(int startX, int startY, int w, int h, int[] argbArray, int offset, int scanlength) {
+        int imgW = width;
+        int imgH = height;
+        //clip to image , keep the source position
+        if (startX < 0) {
+            w += startX;
+            offset -= startX;
+            startX = 0;
+        }
+        if (startY < 0) {
+            h += startY;
+            offset -= startY * scanlength;
+            startY = 0;
+        }
+        if (startX + w > imgW) w = imgW - startX;
+        if (startY + h > imgH) h = imgH - startY;
+        if (w <= 0 || h <= 0) return;
+        prepareWrite();
 
-        int imgW = gimg.getWidth();
-        synchronized (gimg) {
-            for (int y = startY, ymax = startY + h; y < ymax; y++) {
-                for (int x = startX, xmax = startX + w; x < xmax; x++) {
-                    int pixel = argbArray[offset + (y - startY) * scanlength + (x - startX)];
-                    GLMath.img_fill(getData().array(), y * imgW + x, 1, pixel);
+        synchronized (this) {
+            if (argbPixels != null) {
+                syncToInts();
+                for (int j = 0; j < h; j++) {
+                    System.arraycopy(argbArray, offset + j * scanlength, argbPixels, (startY + j) * imgW + startX, w);
+                }
+                intStoreNewer = true;
+            } else if (compact != null && compact.hasPixels()) {
+                for (int j = 0; j < h; j++) {
+                    int s = offset + j * scanlength;
+                    for (int d = (startY + j) * imgW + startX, dmax = d + w; d < dmax; d++, s++) {
+                        compact.setArgb(d, argbArray[s]);
+                    }
+                }
+                compactNewer = gimg != null;
+            } else {
+                byte[] dst = store().getData().array();
+                ScanlineConverter.argbToRgba(argbArray, offset, scanlength, dst, startY * imgW + startX, imgW, w, h, premultiplied);
+                if (compact != null) {
+                    for (int j = 0; j < h; j++) {
+                        compact.reduceRgba(dst, (startY + j) * imgW + startX, w);
+                    }
                 }
             }
         }
-
-        //this method is rgba format
+        //marked after the write , so a present in between still uploads it next frame
+        markDirty(startX, startY, w, h);
     }
 
     /**
@@ -155,38 +686,288 @@ public class BufferedImage extends java.awt.Image implements WritableRenderedIma
      * @param c
      */
     public void setRGB(int startX, int startY, int c) {
-        //argb ->abgr
-        int nc = (0xff000000 & c);//a
-        nc |= (c >> 16) & 0xff;//r
-        nc |= (c) & 0x0000ff00;//g
-        nc |= (c & 0xff) << 16;//b
-        gimg.setPix(startY, startX, nc);
+        prepareWrite();
+        if (argbPixels != null) {
+            synchronized (this) {
+                syncToInts();
+                argbPixels[startY * width + startX] = c;
+                intStoreNewer = true;
+            }
+        } else if (compact != null && compact.hasPixels()) {
+            synchronized (this) {
+                compact.setArgb(startY * width + startX, c);
+                compactNewer = gimg != null;
+            }
+        } else if (compact != null) {
+            ScanlineConverter.setArgb(store().getData().array(), startY * width + startX, compact.reduce(c));
+        } else {
+            ScanlineConverter.setArgb(store().getData().array(), startY * width + startX, premultiplied ? ScanlineConverter.premultiply(c) : c);
+        }
+        markDirty(startX, startY, 1, 1);
     }
 
+    /**
+     * get ARGB pixels row by row, the part out of image is not touched in pixels
+     *
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     * @param pixels     if null , a new array created
+     * @param offset     index of first pixel in pixels
+     * @param scanlength ints per row in pixels
+     * @return
+     */
     public int[] getRGB(int x, int y, int width, int height, int[] pixels, int offset, int scanlength) {
-        int tgtY = offset / scanlength;
-        int tgtX = offset % scanlength;
-        int tgtW = scanlength;
-        int tgtH = pixels.length / scanlength;
-        for (int j = y; j < height && j < gimg.getHeight() && tgtY < tgtH; j++, tgtY++) {
-            int dx = tgtX;
-            int tgtRowStart = tgtY * scanlength;
-            for (int i = x; i < width && i < gimg.getWidth() && dx < tgtW; i++, dx++) {
-                pixels[tgtRowStart + dx] = gimg.getPix(j, i);
+        if (pixels == null) {
+            pixels = new int[offset + height * scanlength];
+        }
+        int imgW = this.width;
+        int imgH = this.height;
+        if (x < 0) {
+            width += x;
+            offset -= x;
+            x = 0;
+        }
+        if (y < 0) {
+            height += y;
+            offset -= y * scanlength;
+            y = 0;
+        }
+        if (x + width > imgW) width = imgW - x;
+        if (y + height > imgH) height = imgH - y;
+        if (width <= 0 || height <= 0) return pixels;
+        BufferedImage root = parent;
+        if (root != null) {
+            return root.getRGB(originX + x, originY + y, width, height, pixels, offset, scanlength);
+        }
+
+        synchronized (this) {
+            if (argbPixels != null) {
+                syncToInts();
+                for (int j = 0; j < height; j++) {
+                    System.arraycopy(argbPixels, (y + j) * imgW + x, pixels, offset + j * scanlength, width);
+                }
+                return pixels;
+            }
+            if (compact != null && compact.hasPixels()) {
+                for (int j = 0; j < height; j++) {
+                    int d = offset + j * scanlength;
+                    for (int s = (y + j) * imgW + x, smax = s + width; s < smax; s++, d++) {
+                        pixels[d] = compact.getArgb(s);
+                    }
+                }
+                return pixels;
+            }
+            if (compact != null) {
+                reduceBytes();
             }
+            ScanlineConverter.rgbaToArgb(store().getData().array(), y * imgW + x, imgW, pixels, offset, scanlength, width, height, premultiplied);
         }
         return pixels;
     }
 
     public int getRGB(int x, int y) {
-        return gimg.getPix(y, x);
+        BufferedImage root = parent;
+        if (root != null) {
+            return root.getRGB(originX + x, originY + y);
+        }
+        if (argbPixels != null) {
+            synchronized (this) {
+                syncToInts();
+                return argbPixels[y * width + x];
+            }
+        }
+        if (compact != null) {
+            synchronized (this) {
+                if (compact.hasPixels()) {
+                    return compact.getArgb(y * width + x);
+                }
+                reduceBytes();
+            }
+        }
+        int c = ScanlineConverter.getArgb(store().getData().array(), y * width + x);
+        return premultiplied ? ScanlineConverter.unpremultiply(c) : c;
     }
 
+    /**
+     * the bytes of image, the caller may write it , so the whole image is marked dirty
+     *
+     * @return
+     */
     public ByteBuffer getData() {
-        return gimg.getData();
+        getBytesForWrite();
+        markDirty(0, 0, width, height);
+        return store().getData();
+    }
+
+    /**
+     * the ImageMutable for present , it's bytes are up to date but not marked dirty
+     *
+     * @return
+     */
+    public synchronized ImageMutable getImage() {
+        if (parent != null) {
+            detach();
+        }
+        if (argbPixels != null || compact != null) {
+            syncToBytes();
+        }
+        return store();
+    }
+
+    /**
+     * bytes for read only , such as the source of drawImage
+     * a compact image without ImageMutable expands to bytes kept by ExpandCache,
+     * the bytes are valid until this image written
+     * a view copies its pixels out here , use getPixelOwner() to read a view without copy
+     *
+     * @return
+     */
+    byte[] getBytesForRead() {
+        if (parent != null) {
+            detach();
+        }
+        if (compact != null) {
+            synchronized (this) {
+                if (gimg != null) {
+                    //drawn into, or presented
+                    syncToBytes();
+                    return gimg.getData().array();
+                }
+                byte[] buf = ExpandCache.get(this);
+                if (buf == null) {
+                    buf = new byte[width * height * BYTE_PER_PIXEL];
+                    compact.toRgba(0, buf, 0, width * height);
+                    ExpandCache.put(this, buf);
+                }
+                return buf;
+            }
+        }
+        if (argbPixels != null) {
+            synchronized (this) {
+                syncToBytes();
+            }
+        }
+        return store().getData().array();
+    }
+
+    /**
+     * bytes for drawing , the writer must call markDirty() for the area it changed
+     *
+     * @return
+     */
+    byte[] getBytesForWrite() {
+        prepareWrite();
+        if (argbPixels != null || compact != null) {
+            synchronized (this) {
+                syncToBytes();
+                if (compact != null) {
+                    //the bytes hold the pixels from now, not both kept
+                    compact.dropPixels();
+                    compactNewer = false;
+                    pixelsResized();
+                }
+                byteStoreNewer = true;
+            }
+        }
+        return store().getData().array();
     }
 
-    public ImageMutable getImage() {
-        return gimg;
+    /**
+     * ImageMutable of this image , a new cleared one taken from pool if this image flushed
+     * compact image use syncToBytes() instead
+     *
+     * @return
+     */
+    private ImageMutable store() {
+        ImageMutable m = gimg;
+        if (m == null) {
+            synchronized (this) {
+                if (gimg == null) {
+                    gimg = ImagePool.acquire(width, height);
+                    markDirty(0, 0, width, height);
+                    pixelsResized();
+                }
+                m = gimg;
+            }
+        }
+        return m;
+    }
+
+    /**
+     * add a rectangle to dirty area , without lock if the graphics is thread confined
+     *
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     */
+    void markDirty(int x, int y, int w, int h) {
+        if (confined) {
+            unionDirty(x, y, w, h);
+        } else {
+            synchronized (this) {
+                unionDirty(x, y, w, h);
+            }
+        }
+    }
+
+    private void unionDirty(int x, int y, int w, int h) {
+        int x2 = x + w;
+        int y2 = y + h;
+        if (x < 0) x = 0;
+        if (y < 0) y = 0;
+        if (x2 > width) x2 = width;
+        if (y2 > height) y2 = height;
+        if (x2 <= x || y2 <= y) return;
+        if (dirtyX2 <= dirtyX1) {
+            dirtyX1 = x;
+            dirtyY1 = y;
+            dirtyX2 = x2;
+            dirtyY2 = y2;
+        } else {
+            if (x < dirtyX1) dirtyX1 = x;
+            if (y < dirtyY1) dirtyY1 = y;
+            if (x2 > dirtyX2) dirtyX2 = x2;
+            if (y2 > dirtyY2) dirtyY2 = y2;
+        }
+    }
+
+    /**
+     * is there any pixel changed since last takeDirtyBounds()
+     *
+     * @return
+     */
+    public synchronized boolean isDirty() {
+        return dirtyX2 > dirtyX1;
+    }
+
+    /**
+     * the union of changed area since last takeDirtyBounds()
+     *
+     * @param r if null , a new Rectangle created
+     * @return
+     */
+    public synchronized Rectangle getDirtyBounds(Rectangle r) {
+        if (r == null) r = new Rectangle();
+        r.x = dirtyX1;
+        r.y = dirtyY1;
+        r.width = dirtyX2 > dirtyX1 ? dirtyX2 - dirtyX1 : 0;
+        r.height = dirtyX2 > dirtyX1 ? dirtyY2 - dirtyY1 : 0;
+        return r;
+    }
+
+    /**
+     * get the dirty area and clear it , used by present
+     *
+     * @param r the dirty area copy to , may be null
+     * @return true if there is dirty area
+     */
+    public synchronized boolean takeDirtyBounds(Rectangle r) {
+        if (dirtyX2 <= dirtyX1) return false;
+        if (r != null) getDirtyBounds(r);
+        dirtyX1 = dirtyY1 = dirtyX2 = dirtyY2 = 0;
+        return true;
     }
 }
@@ -1,6 +1,5 @@
 package java.awt.image;
 
-import org.mini.gl.GLMath;
 import org.mini.gui.GGraphics;
 import org.mini.gui.GObject;
 
@@ -15,6 +14,11 @@ class BufferedImageGraphics extends Graphics2D {
     int imgW, imgH;
 
     int curColor;
+    int fillColor;//pixel value of curColor , premultiplied if canvas is premultiplied
+
+    //thread confined, no monitor per primitive, see SynchronizedImageGraphics for the shared one
+    final boolean confined;
+    Thread owner;
 
     static ThreadLocal<AffineTransform> transform = new ThreadLocal() {
         protected AffineTransform initialValue() {
@@ -26,27 +30,61 @@ class BufferedImageGraphics extends Graphics2D {
             return new java.awt.Point();
         }
     };
-    static ThreadLocal<IntList> cachedPoints = new ThreadLocal() {
-        protected IntList initialValue() {
-            return new IntList();
-        }
-    };
+
+    //image to canvas of drawImage, the context transform composed
+    AffineTransform device = new AffineTransform();
+    //shape points under a complex transform, user space x y pairs, then device points
+    double[] userPts = new double[64];
+    int[] devX = new int[32], devY = new int[32];
+    //sector and row intervals of the arc being drawn
+    final ArcGeometry.Sector arcSector = new ArcGeometry.Sector();
+    final int[] arcIntervals = new int[4];
 
 
     public BufferedImageGraphics(GObject master, long context) {
         super(master, context);
+        confined = false;
     }
 
     public BufferedImageGraphics(BufferedImage bimg) {
+        this(bimg, false);
+    }
+
+    /**
+     * @param bimg
+     * @param confined no lock taken, only the thread drawing first may use it
+     */
+    BufferedImageGraphics(BufferedImage bimg, boolean confined) {
         super(null, 0);
         this.bimg = bimg;
         imgW = bimg.getWidth();
         imgH = bimg.getHeight();
         setClip(0, 0, imgW, imgH);
         transX = transY = 0;
+        //after setClip, the creating thread is not the owner
+        this.confined = confined;
+    }
+
+    /**
+     * the first thread drawing owns a confined graphics, other thread using it is an error
+     * the owner replaced if it died, a MIDlet may restart its game thread
+     */
+    final void checkThread() {
+        Thread t = Thread.currentThread();
+        if (t != owner) {
+            if (owner != null && owner.isAlive()) {
+                throw new IllegalStateException("graphics confined to " + owner.getName() + ", used by " + t.getName());
+            }
+            owner = t;
+        }
     }
 
-    public synchronized void fillRect(int x, int y, int w, int h) {
+    public void fillRect(int x, int y, int w, int h) {
+        if (confined) checkThread();
+        if (complexTransform) {
+            transformedShape(rectPoints(x, y, w, h), true, true, fillColor);
+            return;
+        }
         x += transX;
         y += transY;
         if (x + w < 0 || y + h < 0 || x > imgW || y > imgH) {
@@ -58,155 +96,322 @@ class BufferedImageGraphics extends Graphics2D {
         int cy2 = clipY + clipH > y + h ? y + h : clipY + clipH;
         int cw = cx2 - cx1;
         int ch = cy2 - cy1;
+        if (cw <= 0 || ch <= 0) {
+            return;
+        }
+        fillPixels(cx1, cy1, cw, ch, fillColor);
+        bimg.markDirty(cx1, cy1, cw, ch);
+    }
 
-        for (int i = cy1; i < cy2; i++) {
-            GLMath.img_fill(bimg.getData().array(), cx1 + i * imgW, cw, curColor);
+    /**
+     * set pixels of a clipped rectangle, the whole canvas goes to clear path
+     */
+    private void fillPixels(int x, int y, int w, int h, int argb) {
+        byte[] canvas = bimg.getBytesForWrite();
+        if (w == imgW && h == imgH) {
+            RasterBackends.current.clear(canvas, argb);
+        } else {
+            RasterBackends.current.fillRect(canvas, imgW, x, y, w, h, argb);
+        }
+    }
+
+    /**
+     * set the rectangle to background color , no blend
+     */
+    @Override
+    public void clearRect(int x, int y, int w, int h) {
+        if (confined) checkThread();
+        if (complexTransform) {
+            transformedShape(rectPoints(x, y, w, h), true, true, backgroundPixel());
+            return;
+        }
+        x += transX;
+        y += transY;
+        int cx1 = clipX > x ? clipX : x;
+        int cy1 = clipY > y ? clipY : y;
+        int cx2 = clipX + clipW > x + w ? x + w : clipX + clipW;
+        int cy2 = clipY + clipH > y + h ? y + h : clipY + clipH;
+        if (cx1 < 0) cx1 = 0;
+        if (cy1 < 0) cy1 = 0;
+        if (cx2 > imgW) cx2 = imgW;
+        if (cy2 > imgH) cy2 = imgH;
+        if (cx2 <= cx1 || cy2 <= cy1) {
+            return;
         }
+        fillPixels(cx1, cy1, cx2 - cx1, cy2 - cy1, backgroundPixel());
+        bimg.markDirty(cx1, cy1, cx2 - cx1, cy2 - cy1);
+    }
+
+    private int backgroundPixel() {
+        int bg = backgroundColor == null ? 0xff000000 : backgroundColor.getRGB();
+        return bimg.premultiplied ? ScanlineConverter.premultiply(bg) : bg;
     }
 
     public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
-        fillRect(x, y, width, height);
-    }
-
-    public synchronized void fillArc(int left, int top, int width, int height, int startAngle, int arcAngle) {
-        startAngle = ((startAngle % 360) + 360) % 360;
-        arcAngle = arcAngle > 360 ? 360 : arcAngle;// range: 0-360
-        arcAngle = arcAngle < -360 ? -360 : arcAngle;
-        if (arcAngle < 0) {
-            int tmp = startAngle + arcAngle;
-            startAngle = (tmp + 360) % 360;
-            arcAngle = -arcAngle;
-        }
-        int endAngle = startAngle + arcAngle;
-        if (endAngle > 360) {
-            //分两段画
-            drawArcImpl(left, top, width, height, startAngle, 360, true);
-            drawArcImpl(left, top, width, height, 0, endAngle % 360, true);
-        } else {
-            drawArcImpl(left, top, width, height, startAngle, arcAngle, true);
+        if (confined) checkThread();
+        if (complexTransform) {
+            transformedShape(roundRectPoints(x, y, width, height, arcWidth, arcHeight), true, true, fillColor);
+            return;
         }
+        roundRectImpl(x + transX, y + transY, width, height, arcWidth, arcHeight, true);
     }
 
+    /**
+     * outline covers width + 1 x height + 1 pixels like drawRect
+     */
+    public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        if (confined) checkThread();
+        if (width < 0 || height < 0) {
+            return;
+        }
+        if (complexTransform) {
+            transformedShape(roundRectPoints(x, y, width, height, arcWidth, arcHeight), false, true, fillColor);
+            return;
+        }
+        roundRectImpl(x + transX, y + transY, width + 1, height + 1, arcWidth, arcHeight, false);
+    }
 
     /**
-     * OpenAI generate
+     * corner rows are spans inset by RoundRectCorners , the rows between corners are one rectangle
      *
-     * @param left
+     * @param left canvas coordinate
      * @param top
-     * @param width
-     * @param height
-     * @param startAngle
-     * @param arcAngle
+     * @param w    box of the pixels
+     * @param h
+     * @param arcWidth
+     * @param arcHeight
+     * @param fill
      */
-    public synchronized void drawArc(int left, int top, int width, int height, int startAngle, int arcAngle) {
-        startAngle = ((startAngle % 360) + 360) % 360;
-        arcAngle = arcAngle > 360 ? 360 : arcAngle;// range: 0-360
-        arcAngle = arcAngle < -360 ? -360 : arcAngle;
-        if (arcAngle < 0) {
-            int tmp = startAngle + arcAngle;
-            startAngle = (tmp + 360) % 360;
-            arcAngle = -arcAngle;
-        }
-        int endAngle = startAngle + arcAngle;
-        if (endAngle > 360) {
-            //分两段画
-            drawArcImpl(left, top, width, height, startAngle, 360, false);
-            drawArcImpl(left, top, width, height, 0, endAngle % 360, false);
-        } else {
-            drawArcImpl(left, top, width, height, startAngle, arcAngle, false);
-        }
-    }
-
-    private void drawArcImpl(int left, int top, int width, int height, int startAngle, int arcAngle, boolean fill) {
-        int endAngle = startAngle + arcAngle;
-
-        int a = width / 2;
-        int b = height / 2;
-        int x0 = left + width / 2;
-        int y0 = top + height / 2;
-        int x = 0, y = b;
-        int d1 = b * b - a * a * b + a * a / 4;
-        int dx = 2 * b * b * x;
-        int dy = 2 * a * a * y;
-        float startRadian = (float) Math.toRadians(startAngle);// 起始角度
-        float endRadian = (float) Math.toRadians(endAngle); // 终止角度
-        while (dx < dy) {
-            drawPixImpl(x0, y0, x, y, startRadian, endRadian, fill);
-            if (d1 < 0) {
-                x++;
-                dx += 2 * b * b;
-                d1 += dx + b * b;
+    private void roundRectImpl(int left, int top, int w, int h, int arcWidth, int arcHeight, boolean fill) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        int aw = Math.min(Math.abs(arcWidth), w);
+        int ah = Math.min(Math.abs(arcHeight), h);
+        int[] inset = aw > 0 && ah > 0 ? RoundRectCorners.get(aw, ah) : RoundRectCorners.NONE;
+        int n = inset.length;
+
+        int cx1 = clipX > 0 ? clipX : 0;
+        int cy1 = clipY > 0 ? clipY : 0;
+        int cx2 = (clipX + clipW < imgW ? clipX + clipW : imgW) - 1;
+        int cy2 = (clipY + clipH < imgH ? clipY + clipH : imgH) - 1;
+        int j1 = Math.max(0, cy1 - top);
+        int j2 = Math.min(h - 1, cy2 - top);
+        if (j1 > j2 || cx1 > cx2 || left > cx2 || left + w - 1 < cx1) {
+            return;
+        }
+        byte[] canvas = bimg.getBytesForWrite();
+
+        //rows between the corners
+        int m1 = Math.max(j1, n), m2 = Math.min(j2, h - 1 - n);
+        if (m1 <= m2) {
+            if (fill || w <= 2 || (m1 == 0 && m2 == h - 1 && h <= 2)) {
+                span(canvas, top + m1, m2 - m1 + 1, left, left + w - 1, cx1, cx2);
             } else {
-                x++;
-                y--;
-                dx += 2 * b * b;
-                dy -= 2 * a * a;
-                d1 += dx - dy + b * b;
+                //top and bottom row of a rectangle without corner
+                int s1 = m1, s2 = m2;
+                if (s1 == 0) {
+                    span(canvas, top, 1, left, left + w - 1, cx1, cx2);
+                    s1++;
+                }
+                if (s2 == h - 1 && s2 >= s1) {
+                    span(canvas, top + s2, 1, left, left + w - 1, cx1, cx2);
+                    s2--;
+                }
+                if (s1 <= s2) {
+                    span(canvas, top + s1, s2 - s1 + 1, left, left, cx1, cx2);
+                    span(canvas, top + s1, s2 - s1 + 1, left + w - 1, left + w - 1, cx1, cx2);
+                }
             }
         }
-        int d2 = (int) (b * b * (x + 0.5) * (x + 0.5) + a * a * (y - 1) * (y - 1) - a * a * b * b);
-        while (y >= 0) {
-            drawPixImpl(x0, y0, x, y, startRadian, endRadian, fill);
-
-            if (d2 > 0) {
-                y--;
-                dy -= 2 * a * a;
-                d2 += a * a - dy;
+        //corner rows
+        int empty = (w + 1) / 2;
+        for (int j = j1; j <= j2; j++) {
+            if (j >= n && j < h - n) {
+                continue;
+            }
+            int l = j < n ? inset[j] : inset[h - 1 - j];
+            int r = w - 1 - l;
+            if (l > r) {
+                continue;
+            }
+            if (fill) {
+                span(canvas, top + j, 1, left + l, left + r, cx1, cx2);
+                continue;
+            }
+            int up = j == 0 ? empty : roundRectInset(inset, h, j - 1);
+            int down = j == h - 1 ? empty : roundRectInset(inset, h, j + 1);
+            int re = Math.max(l, Math.max(up, down) - 1);
+            if (re >= w - 1 - re) {
+                span(canvas, top + j, 1, left + l, left + r, cx1, cx2);
             } else {
-                y--;
-                x++;
-                dx += 2 * b * b;
-                dy -= 2 * a * a;
-                d2 += dx - dy + a * a;
+                span(canvas, top + j, 1, left + l, left + re, cx1, cx2);
+                span(canvas, top + j, 1, left + w - 1 - re, left + r, cx1, cx2);
             }
         }
+        markDirty(left, top, w, h);
+    }
+
+    private static int roundRectInset(int[] inset, int h, int j) {
+        int n = inset.length;
+        return j < n ? inset[j] : j >= h - n ? inset[h - 1 - j] : 0;
     }
 
-    private void drawPixImpl(int x0, int y0, int x, int y, float startRadian, float endRadian, boolean fill) {
-        float radian;
-        radian = (float) Math.atan2(y, x);
-        if (radian >= startRadian && radian <= endRadian) {
-            drawLine(x0 + x, y0 - y, fill ? x0 : (x0 + x), fill ? y0 : (y0 - y));
+    /**
+     * fill rows y .. y + rows - 1 from x1 to x2 inclusive, x clipped to cx1 .. cx2 , rows already clipped
+     */
+    private void span(byte[] canvas, int y, int rows, int x1, int x2, int cx1, int cx2) {
+        if (x1 < cx1) x1 = cx1;
+        if (x2 > cx2) x2 = cx2;
+        if (x1 > x2) {
+            return;
         }
-        radian = (float) Math.atan2(y, -x);
-        if (radian >= startRadian && radian <= endRadian) {
-            drawLine(x0 - x, y0 - y, fill ? x0 : (x0 - x), fill ? y0 : (y0 - y));
+        if (rows == 1) {
+            RasterBackends.current.fill(canvas, y * imgW + x1, x2 - x1 + 1, fillColor);
+        } else {
+            RasterBackends.current.fillRect(canvas, imgW, x1, y, x2 - x1 + 1, rows, fillColor);
         }
-        radian = (float) (Math.atan2(-y, x) + Math.PI * 2);
-        if (radian >= startRadian && radian <= endRadian) {
-            drawLine(x0 + x, y0 + y, fill ? x0 : (x0 + x), fill ? y0 : (y0 + y));
+    }
+
+    public void fillArc(int left, int top, int width, int height, int startAngle, int arcAngle) {
+        if (confined) checkThread();
+        if (complexTransform) {
+            transformedShape(arcPoints(left, top, width, height, startAngle, arcAngle, true), true, true, fillColor);
+            return;
+        }
+        drawArcImpl(left + transX, top + transY, width, height, startAngle, arcAngle, true);
+    }
+
+    /**
+     * outline covers width + 1 x height + 1 pixels like drawRect
+     */
+    public void drawArc(int left, int top, int width, int height, int startAngle, int arcAngle) {
+        if (confined) checkThread();
+        if (width < 0 || height < 0) {
+            return;
         }
-        radian = (float) (Math.atan2(-y, -x) + Math.PI * 2);
-        if (radian >= startRadian && radian <= endRadian) {
-            drawLine(x0 - x, y0 + y, fill ? x0 : (x0 - x), fill ? y0 : (y0 + y));
+        if (complexTransform) {
+            transformedShape(arcPoints(left, top, width, height, startAngle, arcAngle, false), false, false, fillColor);
+            return;
         }
+        drawArcImpl(left + transX, top + transY, width + 1, height + 1, startAngle, arcAngle, false);
     }
 
-    public void drawLine(int x1, int y1, int x2, int y2) {
-        x1 += transX;
-        y1 += transY;
-        x2 += transX;
-        y2 += transY;
-        if (x1 == x2) {// 垂直
-            if (x1 < clipX || x1 > clipX + clipW) {
-                return;
-            }
-            if (y1 > y2) {
-                int tmp = y1;
-                y1 = y2;
-                y2 = tmp;
+    public void fillOval(int x, int y, int width, int height) {
+        fillArc(x, y, width, height, 0, 360);
+    }
+
+    public void drawOval(int x, int y, int width, int height) {
+        drawArc(x, y, width, height, 0, 360);
+    }
+
+    /**
+     * ellipse spans from ArcGeometry, cut by the sector when it is not a full ellipse
+     *
+     * @param left canvas coordinate
+     * @param top
+     * @param w    box of the pixels
+     * @param h
+     * @param startAngle
+     * @param arcAngle
+     * @param fill spans of the ellipse, or only the outer pixels of each row
+     */
+    private void drawArcImpl(int left, int top, int w, int h, int startAngle, int arcAngle, boolean fill) {
+        if (w <= 0 || h <= 0 || arcAngle == 0) {
+            return;
+        }
+        ArcGeometry.Sector sector = null;
+        if (arcAngle < 360 && arcAngle > -360) {
+            if (arcAngle < 0) {
+                startAngle += arcAngle;
+                arcAngle = -arcAngle;
             }
-            if (y1 < clipY) {
-                y1 = clipY;
+            sector = arcSector.set(w, h, startAngle, arcAngle);
+        }
+        int cx1 = clipX > 0 ? clipX : 0;
+        int cy1 = clipY > 0 ? clipY : 0;
+        int cx2 = (clipX + clipW < imgW ? clipX + clipW : imgW) - 1;
+        int cy2 = (clipY + clipH < imgH ? clipY + clipH : imgH) - 1;
+        int j1 = Math.max(0, cy1 - top);
+        int j2 = Math.min(h - 1, cy2 - top);
+        int lo = cx1 - left, hi = cx2 - left;
+        if (j1 > j2 || lo > hi || lo >= w || hi < 0) {
+            return;
+        }
+        byte[] canvas = bimg.getBytesForWrite();
+        int[] rowLeft = ArcGeometry.ellipseLeft(w, h);
+        int[] iv = arcIntervals;
+        int empty = (w + 1) / 2;
+        for (int j = j1; j <= j2; j++) {
+            int l = rowLeft[j];
+            int r = w - 1 - l;
+            if (l > r) {
+                continue;
             }
-            if (y2 > clipY + clipH) {
-                y2 = clipY + clipH;
+            if (fill) {
+                arcSpan(canvas, sector, left, top, j, l, r, lo, hi, iv);
+                continue;
             }
-            for (int i = y1; i <= y2; i++) {
-                GLMath.img_fill(bimg.getData().array(), i * bimg.getWidth() + x1, 1, curColor);
+            //outer pixels reach the narrower neighbor row, so the outline has no gap
+            int narrow = Math.max(j > 0 ? rowLeft[j - 1] : empty, j < h - 1 ? rowLeft[j + 1] : empty);
+            int re = Math.max(l, narrow - 1);
+            if (re >= w - 1 - re) {
+                arcSpan(canvas, sector, left, top, j, l, r, lo, hi, iv);
+            } else {
+                arcSpan(canvas, sector, left, top, j, l, re, lo, hi, iv);
+                arcSpan(canvas, sector, left, top, j, w - 1 - re, r, lo, hi, iv);
             }
-        } else if (y1 == y2) { // 水平
-            if (y1 < clipY || y1 > clipY + clipH) {
+        }
+        markDirty(left, top, w, h);
+    }
+
+    private void arcSpan(byte[] canvas, ArcGeometry.Sector sector, int left, int top, int j, int l, int r, int lo, int hi, int[] iv) {
+        if (l < lo) l = lo;
+        if (r > hi) r = hi;
+        if (l > r) {
+            return;
+        }
+        int row = (top + j) * imgW + left;
+        if (sector == null) {
+            RasterBackends.current.fill(canvas, row + l, r - l + 1, fillColor);
+            return;
+        }
+        int n = sector.row(j, l, r, iv);
+        for (int k = 0; k < n; k++) {
+            RasterBackends.current.fill(canvas, row + iv[k * 2], iv[k * 2 + 1] - iv[k * 2] + 1, fillColor);
+        }
+    }
+
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        if (confined) checkThread();
+        if (complexTransform) {
+            double[] p = userPoints(2);
+            p[0] = x1;
+            p[1] = y1;
+            p[2] = x2;
+            p[3] = y2;
+            transformedShape(2, false, false, fillColor);
+            return;
+        }
+        drawLineImpl(x1 + transX, y1 + transY, x2 + transX, y2 + transY);
+    }
+
+    /**
+     * integer Bresenham line in canvas coordinate, both end points included
+     * the clip is applied before stepping: the first and last visible step are solved from
+     * the line equation, so the pixels are the same as the unclipped line
+     */
+    private void drawLineImpl(int x1, int y1, int x2, int y2) {
+        //clip, inclusive
+        int cx1 = clipX > 0 ? clipX : 0;
+        int cy1 = clipY > 0 ? clipY : 0;
+        int cx2 = (clipX + clipW < imgW ? clipX + clipW : imgW) - 1;
+        int cy2 = (clipY + clipH < imgH ? clipY + clipH : imgH) - 1;
+        if (cx2 < cx1 || cy2 < cy1) {
+            return;
+        }
+        if (y1 == y2) {//horizontal
+            if (y1 < cy1 || y1 > cy2) {
                 return;
             }
             if (x1 > x2) {
@@ -214,76 +419,120 @@ class BufferedImageGraphics extends Graphics2D {
                 x1 = x2;
                 x2 = tmp;
             }
-            if (x1 < clipX) {
-                x1 = clipX;
+            if (x1 < cx1) x1 = cx1;
+            if (x2 > cx2) x2 = cx2;
+            if (x2 < x1) {
+                return;
             }
-            if (x2 > clipX + clipW) {
-                x2 = clipX + clipW;
+            RasterBackends.current.fill(bimg.getBytesForWrite(), y1 * imgW + x1, x2 - x1 + 1, fillColor);
+            bimg.markDirty(x1, y1, x2 - x1 + 1, 1);
+            return;
+        }
+        int dx = x2 - x1, dy = y2 - y1;
+        int sx = dx < 0 ? -1 : 1, sy = dy < 0 ? -1 : 1;
+        dx *= sx;
+        dy *= sy;
+        //major axis offset range and minor axis offset range in clip
+        int majLo, majHi, minLo, minHi, dMaj, dMin;
+        boolean xMajor = dx >= dy;
+        if (xMajor) {
+            majLo = sx > 0 ? cx1 - x1 : x1 - cx2;
+            majHi = sx > 0 ? cx2 - x1 : x1 - cx1;
+            minLo = sy > 0 ? cy1 - y1 : y1 - cy2;
+            minHi = sy > 0 ? cy2 - y1 : y1 - cy1;
+            dMaj = dx;
+            dMin = dy;
+        } else {
+            majLo = sy > 0 ? cy1 - y1 : y1 - cy2;
+            majHi = sy > 0 ? cy2 - y1 : y1 - cy1;
+            minLo = sx > 0 ? cx1 - x1 : x1 - cx2;
+            minHi = sx > 0 ? cx2 - x1 : x1 - cx1;
+            dMaj = dy;
+            dMin = dx;
+        }
+        //minor offset at step i is (2*i*dMin + dMaj) / (2*dMaj)
+        long twoMaj = 2L * dMaj, twoMin = 2L * dMin;
+        long i1 = majLo > 0 ? majLo : 0;
+        long i2 = majHi < dMaj ? majHi : dMaj;
+        if (dMin > 0) {
+            if (minLo > 0) {
+                long lo = ceilDiv(twoMaj * minLo - dMaj, twoMin);
+                if (lo > i1) i1 = lo;
             }
-            GLMath.img_fill(bimg.getData().array(), y1 * bimg.getWidth() + x1, x2 - x1 + 1, curColor);
-        } else {// 斜线
-            int dy = Math.abs(y2 - y1);
-            int dx = Math.abs(x2 - x1);
-            int cx2 = clipX + clipW;
-            int cy2 = clipY + clipH;
-            if (dx > dy) {
-                int sx, ex;
-
-                if (x1 > x2) {
-                    sx = x2;
-                    ex = x1;
-                } else {
-                    sx = x1;
-                    ex = x2;
-                }
-                if (sx < clipX) {
-                    sx = clipX;
-                }
-                if (ex > cx2) {
-                    ex = cx2;
-                }
-                for (int i = sx; i <= ex; i++) {
-                    int ty = (y1 + ((y2 - y1) * (i - x1) / (x2 - x1)));
-                    if (ty < clipY || ty > cy2) continue;
-                    GLMath.img_fill(bimg.getData().array(), ty * imgW + i, 1, curColor);
-                }
-            } else {
-                int sy, ey;
-                if (y1 > y2) {
-                    sy = y2;
-                    ey = y1;
-                } else {
-                    sy = y1;
-                    ey = y2;
-                }
-                if (sy < clipY) {
-                    sy = clipY;
-                }
-                if (ey > cy2) {
-                    ey = cy2;
-                }
-                for (int i = sy; i <= ey; i++) {
-                    int tx = (x1 + ((x2 - x1) * (i - y1) / (y2 - y1)));
-                    if (tx < clipX || tx > cx2) continue;
-                    GLMath.img_fill(bimg.getData().array(), i * imgW + tx, 1, curColor);
-                }
+            long hi = ceilDiv(twoMaj * (minHi + 1L) - dMaj, twoMin) - 1;
+            if (hi < i2) i2 = hi;
+        } else if (minLo > 0 || minHi < 0) {
+            return;
+        }
+        if (i2 < i1) {
+            return;
+        }
+        long num = 2 * i1 * dMin + dMaj;
+        int m = (int) (num / twoMaj);
+        int err = (int) (num % twoMaj);
+        int count = (int) (i2 - i1) + 1;
+
+        int px = xMajor ? x1 + sx * (int) i1 : x1 + sx * m;
+        int py = xMajor ? y1 + sy * m : y1 + sy * (int) i1;
+        int lastM = (int) ((2 * i2 * dMin + dMaj) / twoMaj);
+        int ex = xMajor ? x1 + sx * (int) i2 : x1 + sx * lastM;
+        int ey = xMajor ? y1 + sy * lastM : y1 + sy * (int) i2;
+
+        byte[] canvas = bimg.getBytesForWrite();
+        byte r = (byte) (fillColor >> 16), g = (byte) (fillColor >> 8), b = (byte) fillColor, a = (byte) (fillColor >>> 24);
+        int stepX = sx * CELL_BYTES;
+        int stepY = sy * imgW * CELL_BYTES;
+        int stepMaj = xMajor ? stepX : stepY;
+        int stepMin = xMajor ? stepY : stepX;
+        int d = (py * imgW + px) * CELL_BYTES;
+        int errStep = 2 * dMin, errMax = 2 * dMaj;
+        for (int i = 0; i < count; i++) {
+            canvas[d] = r;
+            canvas[d + 1] = g;
+            canvas[d + 2] = b;
+            canvas[d + 3] = a;
+            d += stepMaj;
+            err += errStep;
+            if (err >= errMax) {
+                err -= errMax;
+                d += stepMin;
             }
         }
+        bimg.markDirty(Math.min(px, ex), Math.min(py, ey), Math.abs(ex - px) + 1, Math.abs(ey - py) + 1);
     }
 
-
-    public void drawRect(int x, int y, int w, int h) {
-        drawLine(x, y, x + w, y);
-        drawLine(x, y + h, x + w, y + h);
-        drawLine(x, y, x, y + h);
-        drawLine(x + w, y, x + w, y + h);
+    private static long ceilDiv(long a, long b) {
+        long q = a / b;
+        if (q * b != a && (a < 0) == (b < 0)) q++;
+        return q;
     }
 
-    public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
-        drawRect(x, y, width, height);
+    /**
+     * outline of w+1 x h+1 pixels, each pixel written once
+     */
+    public void drawRect(int x, int y, int w, int h) {
+        if (w < 0 || h < 0) {
+            return;
+        }
+        if (complexTransform) {
+            if (confined) checkThread();
+            transformedShape(rectPoints(x, y, w, h), false, true, fillColor);
+            return;
+        }
+        fillRect(x, y, w + 1, 1);
+        if (h > 0) {
+            fillRect(x, y + h, w + 1, 1);
+        }
+        if (h > 1) {
+            fillRect(x, y + 1, 1, h - 1);
+            if (w > 0) {
+                fillRect(x + w, y + 1, 1, h - 1);
+            }
+        }
     }
 
     public void drawString(String str, int x, int y) {
+        if (confined) checkThread();
         drawString(str, x, y, GGraphics.BASELINE | GGraphics.LEFT);
     }
 
@@ -297,8 +546,9 @@ class BufferedImageGraphics extends Graphics2D {
     }
 
     private void drawSubstring(String str, int offset, int length, int x, int y, int anchor) {
-        x += transX;
-        y += transY;
+        int ux = x;
+        x = deviceX(x, y);
+        y = deviceY(ux, y);
         if (str == null) return;
         if (offset < 0) offset = 0;
         int end = offset + length;
@@ -330,9 +580,10 @@ class BufferedImageGraphics extends Graphics2D {
         }
     }
 
-    private synchronized void drawChar(char character, int x, int y, int anchor) {
-        x += transX;
-        y += transY;
+    private void drawChar(char character, int x, int y, int anchor) {
+        int ux = x;
+        x = deviceX(x, y);
+        y = deviceY(ux, y);
         int w = font.getBitmapfont().charWidth(character);
         int h = font.getBitmapfont().getHeight();
 
@@ -354,15 +605,17 @@ class BufferedImageGraphics extends Graphics2D {
         font.getBitmapfont().drawChar(bimg, character, x, y, curColor, clipX, clipY, clipW, clipH);
     }
 
-    public synchronized void drawChars(char[] data, int offset, int length, int x, int y, int anchor) {
-        x += transX;
-        y += transY;
+    public void drawChars(char[] data, int offset, int length, int x, int y, int anchor) {
+        if (confined) checkThread();
+        int ux = x;
+        x = deviceX(x, y);
+        y = deviceY(ux, y);
         if (data == null) return;
         if (offset < 0) offset = 0;
         int end = offset + length;
         if (end > data.length) end = data.length;
 
-        int w = font.getBitmapfont().charsWidth(data);
+        int w = font.getBitmapfont().charsWidth(data, offset, end - offset);
         int h = font.getBitmapfont().getHeight();
 
         if ((anchor & GGraphics.TOP) != 0) {
@@ -389,9 +642,27 @@ class BufferedImageGraphics extends Graphics2D {
     }
 
     public void drawTriangle(int x1, int y1, int x2, int y2, int x3, int y3) {
-        drawLine(x1, y1, x2, y2);
-        drawLine(x1, y1, x3, y3);
-        drawLine(x2, y2, x3, y3);
+        if (confined) checkThread();
+        if (complexTransform) {
+            double[] p = userPoints(3);
+            p[0] = x1;
+            p[1] = y1;
+            p[2] = x2;
+            p[3] = y2;
+            p[4] = x3;
+            p[5] = y3;
+            transformedShape(3, false, true, fillColor);
+            return;
+        }
+        x1 += transX;
+        y1 += transY;
+        x2 += transX;
+        y2 += transY;
+        x3 += transX;
+        y3 += transY;
+        drawLineImpl(x1, y1, x2, y2);
+        drawLineImpl(x1, y1, x3, y3);
+        drawLineImpl(x2, y2, x3, y3);
     }
 
     static ThreadLocal<int[][]> triangle = new ThreadLocal() {
@@ -401,384 +672,332 @@ class BufferedImageGraphics extends Graphics2D {
         }
     };
 
-    /**
-     * 画平顶实心三角形
-     */
-    private void fillTopLineTriangle(int x0, int y0, int x1, int y1, int x2, int y2) {
-        int ys = y0;
-        if (y0 < clipY) {
-            ys = clipY;
-        }
-        int ye = y2;
-        if (y2 > clipY + clipH) {
-            ye = clipY + clipH;
-        }
-        for (int y = ys; y <= ye; y++) {
-            int xs, xe;
-            xs = (int) ((y - y0) * (x2 - x0) / (y2 - y0) + x0 + 0.5f);
-            xe = (int) ((y - y1) * (x2 - x1) / (y2 - y1) + x1 + 0.5f);
-            if (xs > xe) {
-                int tmp = xs;
-                xs = xe;
-                xe = tmp;
-            }
-            if (xe < clipX || xs >= clipX + clipW) {
-                continue;
-            }
-            xe += 1;
-            //drawLine(xs, y, xe, y);
-            if (xs < clipX) {
-                xs = clipX;
-            }
-            if (xe > clipX + clipW) {
-                xe = clipX + clipW;
-            }
-            GLMath.img_fill(bimg.getData().array(), y * bimg.getWidth() + xs, xe - xs, curColor);
+    public void fillTriangle(int x0, int y0, int x1, int y1, int x2, int y2) {
+        if (confined) checkThread();
+        int[][] t = triangle.get();
+        t[0][0] = x0;
+        t[0][1] = x1;
+        t[0][2] = x2;
+        t[1][0] = y0;
+        t[1][1] = y1;
+        t[1][2] = y2;
+        fillPolygonImpl(t[0], t[1], 3);
+    }
+
+    public void fillPolygon(int[] x, int[] y, int n) {
+        if (confined) checkThread();
+        if (x == null || y == null) {
+            return;
         }
+        fillPolygonImpl(x, y, Math.min(n, Math.min(x.length, y.length)));
     }
 
     /**
-     * 画平底实心三角形
+     * even-odd fill by the active edge table of PolygonRasterizer, the points are not changed
      */
-    private void fillBottomLineTriangle(int x0, int y0, int x1, int y1, int x2, int y2) {
-        int ys = y0;
-        if (y0 < clipY) {
-            ys = clipY;
+    private void fillPolygonImpl(int[] x, int[] y, int n) {
+        if (n < 3) {
+            return;
         }
-        int ye = y1;
-        if (y1 > clipY + clipH) {
-            ye = clipY + clipH;
+        if (complexTransform) {
+            transformedShape(polygonPoints(x, y, n), true, true, fillColor);
+            return;
         }
-        for (int y = ys; y <= ye; y++) {
-            int xs, xe;
-            xs = (int) ((y - y0) * (x1 - x0) / (y1 - y0) + x0 + 0.5f);
-            xe = (int) ((y - y0) * (x2 - x0) / (y2 - y0) + x0 + 0.5f);
-
-            if (xs > xe) {
-                int tmp = xs;
-                xs = xe;
-                xe = tmp;
-            }
-            if (xe < clipX || xs >= clipX + clipW) {
-                continue;
-            }
-            xe += 1;
-            //drawLine(xs, y, xe, y);
-            if (xs < clipX) {
-                xs = clipX;
-            }
-            if (xe > clipX + clipW) {
-                xe = clipX + clipW;
-            }
-            GLMath.img_fill(bimg.getData().array(), y * bimg.getWidth() + xs, xe - xs, curColor);
+        fillDevicePolygon(x, y, n, transX, transY, fillColor);
+    }
 
+    private void fillDevicePolygon(int[] x, int[] y, int n, int tx, int ty, int argb) {
+        int cx1 = clipX > 0 ? clipX : 0;
+        int cy1 = clipY > 0 ? clipY : 0;
+        int cx2 = (clipX + clipW < imgW ? clipX + clipW : imgW) - 1;
+        int cy2 = (clipY + clipH < imgH ? clipY + clipH : imgH) - 1;
+        PolygonRasterizer pr = PolygonRasterizer.get();
+        pr.build(x, y, n, tx, ty);
+        if (pr.edgeCount == 0 || pr.maxY <= cy1 || pr.minY > cy2 || pr.maxX < cx1 || pr.minX > cx2) {
+            return;
         }
+        pr.fill(bimg.getBytesForWrite(), imgW, cx1, cy1, cx2, cy2, argb);
+        markDirty(pr.minX, pr.minY, pr.maxX - pr.minX + 1, pr.maxY - pr.minY);
     }
 
-    public void fillTriangle(int x0, int y0, int x1, int y1, int x2, int y2) {
-        if (y0 == y1) {
-            fillTopLineTriangle(x0, y0, x1, y1, x2, y2);
-        } else if (y1 == y2) {
-            fillBottomLineTriangle(x0, y0, x1, y1, x2, y2);
-        } else {
-            int xtop = 0, ytop = 0, xmiddle = 0, ymiddle = 0, xbottom = 0, ybottom = 0;
-            xtop = x0;
-            ytop = y0;
-            xmiddle = x1;
-            ymiddle = y1;
-            xbottom = x2;
-            ybottom = y2;
-            int xl; // 长边在ymiddle时的x，来决定长边是在左边还是右边
-            xl = (int) ((ymiddle - ytop) * (xbottom - xtop) / (ybottom - ytop) + xtop + 0.5);
+    public void drawPolygon(int[] x, int[] y, int n) {
+        if (confined) checkThread();
+        if (x == null || y == null) {
+            return;
+        }
+        n = Math.min(n, Math.min(x.length, y.length));
+        if (complexTransform) {
+            transformedShape(polygonPoints(x, y, n), false, true, fillColor);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            drawLineImpl(x[i] + transX, y[i] + transY, x[j] + transX, y[j] + transY);
+        }
+    }
 
-            if (xl <= xmiddle) // 左三角形
-            {
-                // 画平底
-                fillBottomLineTriangle(xtop, ytop, xl, ymiddle, xmiddle, ymiddle);
+    /**
+     * user space points of n points, grown if needed
+     */
+    private double[] userPoints(int n) {
+        if (userPts.length < n * 2) {
+            userPts = new double[Math.max(n * 2, userPts.length * 2)];
+        }
+        return userPts;
+    }
 
-                // 画平顶
-                fillTopLineTriangle(xl, ymiddle, xmiddle, ymiddle, xbottom, ybottom);
-            } else // 右三角形
-            {
-                // 画平底
-                fillBottomLineTriangle(xtop, ytop, xmiddle, ymiddle, xl, ymiddle);
+    private int rectPoints(int x, int y, int w, int h) {
+        double[] p = userPoints(4);
+        p[0] = x;
+        p[1] = y;
+        p[2] = x + w;
+        p[3] = y;
+        p[4] = x + w;
+        p[5] = y + h;
+        p[6] = x;
+        p[7] = y + h;
+        return 4;
+    }
 
-                // 画平顶
-                fillTopLineTriangle(xmiddle, ymiddle, xl, ymiddle, xbottom, ybottom);
-            }
+    private int polygonPoints(int[] x, int[] y, int n) {
+        double[] p = userPoints(n);
+        for (int i = 0; i < n; i++) {
+            p[i * 2] = x[i];
+            p[i * 2 + 1] = y[i];
         }
+        return n;
     }
 
-    private synchronized void fillTriangle(int[] x, int[] y) {
-        //排序，确保y值最小的点为第一个点，y值最大的点为第三个点
-        int minI = 0;
-        int maxI = 0;
-        x[0] += transX;
-        y[0] += transY;
-        for (int i = 1; i < 3; i++) {
-            x[i] += transX;
-            y[i] += transY;
-            if (y[i] < y[minI]) {
-                minI = i;
-            }
-            if (y[i] > y[maxI]) {
-                maxI = i;
-            }
+    /**
+     * ellipse arc flattened to segments, the center added for a pie which is not a full ellipse
+     */
+    private int arcPoints(int left, int top, int w, int h, int startAngle, int arcAngle, boolean pie) {
+        if (w <= 0 || h <= 0 || arcAngle == 0) {
+            return 0;
         }
-        if (minI == maxI) {//三点共线
-            return;
+        if (arcAngle > 360) arcAngle = 360;
+        if (arcAngle < -360) arcAngle = -360;
+        int seg = arcSegments(w, h, Math.abs(arcAngle));
+        double[] p = userPoints(seg + 2);
+        double rx = w / 2.0, ry = h / 2.0;
+        double cx = left + rx, cy = top + ry;
+        int k = 0;
+        for (int i = 0; i <= seg; i++) {
+            double t = Math.toRadians(startAngle + (double) arcAngle * i / seg);
+            p[k++] = cx + rx * Math.cos(t);
+            p[k++] = cy - ry * Math.sin(t);
         }
-        if (minI != 0) {
-            int t = x[0];
-            x[0] = x[minI];
-            x[minI] = t;
-            t = y[0];
-            y[0] = y[minI];
-            y[minI] = t;
-            if (maxI == 0) maxI = minI;
+        if (pie && arcAngle > -360 && arcAngle < 360) {
+            p[k++] = cx;
+            p[k++] = cy;
+        }
+        return k / 2;
+    }
+
+    /**
+     * four quarter arcs counterclockwise from the top right corner
+     */
+    private int roundRectPoints(int x, int y, int w, int h, int arcWidth, int arcHeight) {
+        if (w <= 0 || h <= 0) {
+            return 0;
         }
-        if (maxI != 2) {
-            int t = x[2];
-            x[2] = x[maxI];
-            x[maxI] = t;
-            t = y[2];
-            y[2] = y[maxI];
-            y[maxI] = t;
+        double rx = Math.min(Math.abs(arcWidth), w) / 2.0;
+        double ry = Math.min(Math.abs(arcHeight), h) / 2.0;
+        if (rx == 0 || ry == 0) {
+            return rectPoints(x, y, w, h);
         }
-        try {
-            fillTriangle(x[0], y[0], x[1], y[1], x[2], y[2]);
-        } catch (Exception e) {
-            e.printStackTrace();
+        int seg = arcSegments(rx * 2, ry * 2, 90);
+        double[] p = userPoints((seg + 1) * 4);
+        int k = 0;
+        for (int c = 0; c < 4; c++) {
+            double cx = c == 0 || c == 3 ? x + w - rx : x + rx;
+            double cy = c < 2 ? y + ry : y + h - ry;
+            for (int i = 0; i <= seg; i++) {
+                double t = Math.toRadians(90 * c + 90.0 * i / seg);
+                p[k++] = cx + rx * Math.cos(t);
+                p[k++] = cy - ry * Math.sin(t);
+            }
         }
+        return k / 2;
     }
 
     /**
-     * openai generate
+     * segments of an arc, more for a larger ellipse on canvas
+     */
+    private int arcSegments(double w, double h, int degrees) {
+        double scale = Math.sqrt(Math.abs(getTransform().getDeterminant()));
+        double r = (w + h) / 4 * scale;
+        int full = (int) Math.min(128, Math.max(8, Math.sqrt(r) * 6));
+        return Math.max(2, (int) Math.ceil(full * degrees / 360.0));
+    }
+
+    /**
+     * shape of n user space points in userPts under a complex transform,
+     * the points rounded to canvas pixels then filled by PolygonRasterizer or joined by lines of fillColor
      *
-     * @param x
-     * @param y
      * @param n
+     * @param fill   fill with argb, or outline
+     * @param closed outline joins the last point to the first
+     * @param argb   pixel value to fill
      */
-    public void fillPolygon(int[] x, int[] y, int n) {
-        if (n < x.length || n < y.length) return;
-
-        if (n == 3) {
-            fillTriangle(x, y);
-            return;
-        }
-        int i;
-        int ymin = Integer.MAX_VALUE;
-        int ymax = Integer.MIN_VALUE;
-        boolean yGreatThanClipMin = false;
-        boolean yLessThanClipMax = false;
-        boolean xGreatThanClipMin = false;
-        boolean xLessThanClipMax = false;
-        for (i = 0; i < n; i++) {
-            x[i] += transX;
-            y[i] += transY;
-            if (y[i] < ymin) {
-                ymin = y[i];
-            }
-            if (y[i] > ymax) {
-                ymax = y[i];
-            }
-            yLessThanClipMax = yLessThanClipMax || (y[i] < clipY + clipH);
-            yGreatThanClipMin = yGreatThanClipMin || (y[i] > clipY);
-            xLessThanClipMax = xLessThanClipMax || (x[i] < clipX + clipW);
-            xGreatThanClipMin = xGreatThanClipMin || (x[i] > clipX);
-        }
-        //如果矩形区域超出屏幕，则不绘制
-        if (!yGreatThanClipMin || !yLessThanClipMax || !xGreatThanClipMin || !xLessThanClipMax) {
-            return;
-        }
-
-        IntList[] edgeList = new IntList[ymax - ymin + 1];
-        for (i = 0; i < ymax - ymin + 1; i++) {
-            edgeList[i] = new IntList();
-        }
-        for (i = 0; i < n; i++) {
-            int x1 = x[i];
-            int y1 = y[i];
-            int x2 = x[(i + 1) % n];
-            int y2 = y[(i + 1) % n];
-            if (y1 == y2) {
-                edgeList[y1 - ymin].add(x1);
-                edgeList[y2 - ymin].add(x2);
-                continue;
-            }
-            if (y1 > y2) {
-                int temp;
-                temp = x1;
-                x1 = x2;
-                x2 = temp;
-                temp = y1;
-                y1 = y2;
-                y2 = temp;
-            }
-            float dx = (float) (x2 - x1) / (float) (y2 - y1);
-            float xi = x1;
-            for (int yi = y1; yi < y2; yi++) {
-                int ixi = Math.round(xi);
-                edgeList[yi - ymin].add(ixi);
-                xi += dx;
-            }
+    private void transformedShape(int n, boolean fill, boolean closed, int argb) {
+        if (n < 2) {
+            return;
+        }
+        getTransform().transform(userPts, 0, userPts, 0, n);
+        if (devX.length < n) {
+            devX = new int[Math.max(n, devX.length * 2)];
+            devY = new int[devX.length];
         }
-        for (i = ymin; i <= ymax; i++) {
-            //Collections.sort(edgeList[i - ymin]);
-            //Arrays.sort(edgeList[i-ymin].getArray());
-            edgeList[i - ymin].sort();
-            for (int j = 0; j < edgeList[i - ymin].size(); j += 2) {
-                drawLine(edgeList[i - ymin].get(j), i, edgeList[i - ymin].get(j + 1), i);
+        for (int i = 0; i < n; i++) {
+            devX[i] = (int) Math.floor(userPts[i * 2] + 0.5);
+            devY[i] = (int) Math.floor(userPts[i * 2 + 1] + 0.5);
+        }
+        if (fill) {
+            if (n >= 3) {
+                fillDevicePolygon(devX, devY, n, 0, 0, argb);
             }
+            return;
+        }
+        int last = closed ? n : n - 1;
+        for (int i = 0; i < last; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            drawLineImpl(devX[i], devY[i], devX[j], devY[j]);
+        }
+    }
+
+    /**
+     * canvas position of a user point, text, regions and copyArea are placed by it but not rotated or scaled
+     */
+    private int deviceX(int x, int y) {
+        if (!complexTransform) {
+            return x + transX;
         }
+        AffineTransform t = getTransform();
+        return (int) Math.floor(t.getScaleX() * x + t.getShearX() * y + t.getTranslateX() + 0.5);
     }
 
+    private int deviceY(int x, int y) {
+        if (!complexTransform) {
+            return y + transY;
+        }
+        AffineTransform t = getTransform();
+        return (int) Math.floor(t.getShearY() * x + t.getScaleY() * y + t.getTranslateY() + 0.5);
+    }
+
+    /**
+     * J2ME drawRegion, a region of src drawn with one of the eight sprite transforms, no scale
+     *
+     * @param src       not this canvas
+     * @param x_src     region in src , limited to src
+     * @param y_src
+     * @param width
+     * @param height
+     * @param transform GGraphics.TRANS_*
+     * @param x_dest    anchor point
+     * @param y_dest
+     * @param anchor    of the transformed region
+     */
     public void drawRegion(Image src, int x_src, int y_src, int width, int height, int transform, int x_dest, int y_dest, int anchor) {
-        if (src == null || width == 0 || height == 0) {
-            System.out.println("drawRegion src image is null");
+        if (confined) checkThread();
+        if (transform < 0 || transform > 7) {
+            throw new IllegalArgumentException("transform " + transform);
+        }
+        if (!(src instanceof BufferedImage)) {
             return;
         }
-        final int imgw = src.getWidth(null);
-        final int imgh = src.getHeight(null);
+        BufferedImage cimg = (BufferedImage) src;
+        if (cimg == bimg) {
+            throw new IllegalArgumentException("drawRegion source is the destination");
+        }
+        final int imgw = cimg.getWidth();
+        final int imgh = cimg.getHeight();
         x_src = x_src < 0 ? 0 : x_src;
         x_src = x_src > imgw ? imgw : x_src;
         y_src = y_src < 0 ? 0 : y_src;
         y_src = y_src > imgh ? imgh : y_src;
-
         if (x_src + width > imgw) {
             width = imgw - x_src;
         }
         if (y_src + height > imgh) {
             height = imgh - y_src;
         }
-
-        x_dest += transX;
-        y_dest += transY;
-
-
-        float winX, winY, winW, winH;
-        winX = x_dest;
-        winY = y_dest;
-        winW = width;
-        winH = height;
-        float ix = 0f, iy = 0f, iw = imgw;
-        float px = 0f, py = 0f, pw = 0f, ph = 0f;
-        float rot = 0f;
-        switch (transform) {
-            case GGraphics.TRANS_NONE:
-                px = x_dest - x_src;
-                py = y_dest - y_src;
-                pw = imgw;
-                ph = imgh;
-                ix = px;
-                iy = py;
-                winW = width;
-                winH = height;
-                break;
-            case GGraphics.TRANS_ROT90:
-                px = x_dest - (imgh - y_src - height);
-                py = y_dest - x_src;
-                pw = imgh;
-                ph = imgw;
-                rot = 90f;
-                ix = px + imgh;
-                iy = py;
-                winW = height;
-                winH = width;
-                break;
-            case GGraphics.TRANS_ROT180:
-                px = x_dest - (imgw - x_src - width);
-                py = y_dest - (imgh - y_src - height);
-                pw = imgw;
-                ph = imgh;
-                rot = 180f;
-                ix = px + imgw;
-                iy = py + imgh;
-                winW = width;
-                winH = height;
-                break;
-            case GGraphics.TRANS_ROT270:
-                px = x_dest - y_src;
-                py = y_dest - (imgw - x_src - width);
-                pw = imgh;
-                ph = imgw;
-                rot = 270f;
-                ix = px;
-                iy = py + imgw;
-                winW = height;
-                winH = width;
-                break;
-            case GGraphics.TRANS_MIRROR:
-                px = x_dest - (imgw - x_src - width);
-                py = y_dest - y_src;
-                pw = imgw;
-                ph = imgh;
-                ix = px + imgw;
-                iy = py;
-                iw = -imgw;
-                winW = width;
-                winH = height;
-                break;
-            case GGraphics.TRANS_MIRROR_ROT90:
-                px = x_dest - (imgh - y_src - height);
-                py = y_dest - (imgw - x_src - width);
-                pw = imgh;
-                ph = imgw;
-                rot = 90f;
-                ix = px + imgh;
-                iy = py + imgw;
-                iw = -imgw;
-                winW = height;
-                winH = width;
-                break;
-            case GGraphics.TRANS_MIRROR_ROT180:
-                px = x_dest - x_src;
-                py = y_dest - (imgh - y_src - height);
-                pw = imgw;
-                ph = imgh;
-                rot = 180f;
-                iw = -imgw;
-                ix = px;
-                iy = py + imgh;
-                winW = width;
-                winH = height;
-                break;
-            case GGraphics.TRANS_MIRROR_ROT270:
-                px = x_dest - y_src;
-                py = y_dest - x_src;
-                pw = imgh;
-                ph = imgw;
-                rot = 270f;
-                iw = -imgw;
-                ix = px;
-                iy = py;
-                winW = height;
-                winH = width;
-                break;
-            default:
-                throw new IllegalArgumentException("IllegalArgumentException");
+        if (width <= 0 || height <= 0) {
+            return;
         }
 
+        boolean transposed = RegionBlitter.isTransposed(transform);
+        int winW = transposed ? height : width;
+        int winH = transposed ? width : height;
+        int dx = deviceX(x_dest, y_dest);
+        int dy = deviceY(x_dest, y_dest);
         if ((anchor & GGraphics.RIGHT) != 0) {
-            px -= winW;
-            ix -= winW;
-            winX -= winW;
+            dx -= winW;
         } else if ((anchor & GGraphics.HCENTER) != 0) {
-            px -= winW / 2;
-            ix -= winW / 2;
-            winX -= winW / 2;
+            dx -= winW / 2;
         }
         if ((anchor & GGraphics.BOTTOM) != 0) {
-            py -= winH;
-            iy -= winH;
-            winY -= winH;
+            dy -= winH;
         } else if ((anchor & GGraphics.VCENTER) != 0) {
-            py -= winH / 2;
-            iy -= winH / 2;
-            winY -= winH / 2;
+            dy -= winH / 2;
+        }
+
+        blitRegion(cimg, x_src, y_src, width, height, transform, dx, dy);
+    }
+
+    /**
+     * region of cimg with a sprite transform, clipped here
+     *
+     * @param dx top left of the transformed region in canvas
+     * @param dy
+     */
+    private void blitRegion(BufferedImage cimg, int x_src, int y_src, int width, int height, int transform, int dx, int dy) {
+        boolean transposed = RegionBlitter.isTransposed(transform);
+        int winW = transposed ? height : width;
+        int winH = transposed ? width : height;
+        //clip is inside canvas
+        int x1 = Math.max(clipX, dx);
+        int y1 = Math.max(clipY, dy);
+        int x2 = Math.min(clipX + clipW, dx + winW);
+        int y2 = Math.min(clipY + clipH, dy + winH);
+        if (x2 <= x1 || y2 <= y1) {
+            return;
+        }
+        if (ImageRegistry.enabled) {
+            ImageRegistry.touch(cimg);
+        }
+        //canvas first, if cimg is a view of canvas , it copy out here
+        byte[] dst = bimg.getBytesForWrite();
+        BufferedImage owner = cimg.getPixelOwner();
+        int ox = 0, oy = 0;
+        if (owner != cimg) {
+            ox = cimg.originX;
+            oy = cimg.originY;
         }
+        byte[] s = owner.getBytesForRead();
+        int mode = blitMode(cimg, owner);
+        if (mode == RegionBlitter.MODE_BITMASK && transform == GGraphics.TRANS_NONE && OpaqueRuns.enabled) {
+            //a frame of sprite sheet, the clip is inside the region so the runs of whole image are cut to it
+            int srcW = owner.getWidth(), pos = oy * srcW + ox;
+            cimg.getAlphaInfo(false).getRuns(s, pos, srcW).blit(s, pos, srcW, dst, imgW, dx - x_src, dy - y_src, x1, y1, x2, y2);
+        } else {
+            RegionBlitter.blit(s, owner.getWidth(), x_src + ox, y_src + oy, width, height, transform,
+                    dst, imgW, dx, dy, x1, y1, x2, y2, mode);
+        }
+        bimg.markDirty(x1, y1, x2 - x1, y2 - y1);
+    }
 
-        throw new RuntimeException("not implementation yet.");
+    /**
+     * how the pixels of cimg are put to canvas, RegionBlitter.MODE_*
+     */
+    private static int blitMode(BufferedImage cimg, BufferedImage owner) {
+        AlphaInfo info = cimg.getAlphaInfo(false);
+        if (info != null && info.transparency == Transparency.OPAQUE) {
+            return RegionBlitter.MODE_OPAQUE;
+        } else if (info != null && info.transparency == Transparency.BITMASK) {
+            return RegionBlitter.MODE_BITMASK;
+        }
+        return owner.premultiplied ? RegionBlitter.MODE_PREMULTIPLIED : RegionBlitter.MODE_STRAIGHT;
     }
 
     public int getARGB() {
@@ -786,35 +1005,138 @@ class BufferedImageGraphics extends Graphics2D {
     }
 
     /**
-     * not implementation
+     * J2ME copyArea, move a block of canvas , the source and destination may overlap
+     * the source limited to canvas , the destination limited to clip
      *
      * @param x_src
      * @param y_src
      * @param width
      * @param height
-     * @param x_dest
+     * @param x_dest anchor point of destination
      * @param y_dest
      * @param anchor
      */
     public void copyArea(int x_src, int y_src, int width, int height, int x_dest, int y_dest, int anchor) {
-        throw new RuntimeException("not implementation yet.");
+        if (confined) checkThread();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int dx = deviceX(x_dest, y_dest);
+        int dy = deviceY(x_dest, y_dest);
+        if ((anchor & GGraphics.RIGHT) != 0) {
+            dx -= width;
+        } else if ((anchor & GGraphics.HCENTER) != 0) {
+            dx -= width / 2;
+        }
+        if ((anchor & GGraphics.BOTTOM) != 0) {
+            dy -= height;
+        } else if ((anchor & GGraphics.VCENTER) != 0) {
+            dy -= height / 2;
+        }
+        copyAreaImpl(deviceX(x_src, y_src), deviceY(x_src, y_src), width, height, dx, dy);
+    }
+
+    /**
+     * java.awt copyArea, the block moved by dx,dy
+     */
+    @Override
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+        if (confined) checkThread();
+        int ux = x;
+        x = deviceX(x, y);
+        y = deviceY(ux, y);
+        copyAreaImpl(x, y, width, height, x + dx, y + dy);
+    }
+
+    /**
+     * block move in canvas coordinate, rows copied in the order that a row is read before it's overwritten,
+     * System.arraycopy is safe for the overlap inside a row
+     */
+    private void copyAreaImpl(int sx, int sy, int w, int h, int dx, int dy) {
+        if (sx < 0) {
+            dx -= sx;
+            w += sx;
+            sx = 0;
+        }
+        if (sy < 0) {
+            dy -= sy;
+            h += sy;
+            sy = 0;
+        }
+        if (sx + w > imgW) w = imgW - sx;
+        if (sy + h > imgH) h = imgH - sy;
+        int x1 = Math.max(dx, clipX);
+        int y1 = Math.max(dy, clipY);
+        int x2 = Math.min(dx + w, clipX + clipW);
+        int y2 = Math.min(dy + h, clipY + clipH);
+        if (x2 <= x1 || y2 <= y1) {
+            return;
+        }
+        sx += x1 - dx;
+        sy += y1 - dy;
+        w = x2 - x1;
+        h = y2 - y1;
+        if (sx == x1 && sy == y1) {
+            return;
+        }
+        byte[] canvas = bimg.getBytesForWrite();
+        int rowBytes = imgW * CELL_BYTES;
+        int len = w * CELL_BYTES;
+        int s = (sy * imgW + sx) * CELL_BYTES;
+        int d = (y1 * imgW + x1) * CELL_BYTES;
+        if (w == imgW) {
+            //whole rows are one block
+            System.arraycopy(canvas, s, canvas, d, len * h);
+        } else if (y1 > sy) {
+            //moving down, bottom row first
+            s += (h - 1) * rowBytes;
+            d += (h - 1) * rowBytes;
+            for (int j = 0; j < h; j++, s -= rowBytes, d -= rowBytes) {
+                System.arraycopy(canvas, s, canvas, d, len);
+            }
+        } else {
+            for (int j = 0; j < h; j++, s += rowBytes, d += rowBytes) {
+                System.arraycopy(canvas, s, canvas, d, len);
+            }
+        }
+        bimg.markDirty(x1, y1, w, h);
     }
 
-    public synchronized void translate(int x, int y) {
-        super.translate(x, y);
-        getTransform().translate(x, y);
+    protected void transformChanged() {
+        if (confined) checkThread();
+        super.transformChanged();
     }
 
-    public synchronized void setClip(int x, int y, int w, int h) {
+    public void setClip(int x, int y, int w, int h) {
+        if (confined) checkThread();
         if ((w <= 0) || (h <= 0)) {
             clipX = clipY = clipW = clipH = 0;
             return;
         }
         int x1 = x + transX;
         int y1 = y + transY;
-        int x2 = x1 + w;
-        int y2 = y1 + h;
+        if (complexTransform) {
+            int[] b = deviceBounds(x, y, w, h, clipBounds);
+            x1 = b[0];
+            y1 = b[1];
+            w = b[2];
+            h = b[3];
+        }
+        clampClip(x1, y1, x1 + w, y1 + h);
+    }
 
+    /**
+     * clip in canvas coordinate, the transform not applied, used by replay
+     */
+    void setDeviceClip(int x, int y, int w, int h) {
+        if ((w <= 0) || (h <= 0)) {
+            clipX = clipY = clipW = clipH = 0;
+            return;
+        }
+        clampClip(x, y, x + w, y + h);
+    }
+
+    private void clampClip(int x1, int y1, int x2, int y2) {
         if (x1 < 0) x1 = 0;
         if (y1 < 0) y1 = 0;
         if (x1 > imgW) x1 = imgW;
@@ -835,26 +1157,55 @@ class BufferedImageGraphics extends Graphics2D {
 
     }
 
+    /**
+     * the image transform is composed with the transform of graphics, then by the type of the result:
+     * integer translation copies or blends rows, quarter turns and flips at integer position go to RegionBlitter,
+     * a scale to whole pixels goes to ScaledBlitter, the others to img_draw
+     */
     @Override
-    public synchronized boolean drawImage(Image img, AffineTransform transform,
-                                          ImageObserver observer) {
+    public boolean drawImage(Image img, AffineTransform transform,
+                             ImageObserver observer) {
+        if (confined) checkThread();
         if (img instanceof BufferedImage) {
             BufferedImage cimg = ((BufferedImage) img);
-            int srcW = cimg.getWidth();
-            byte[] dst = bimg.getData().array();
-            byte[] src = cimg.getData().array();
-
-            GLMath.img_draw(dst, imgW,
-                    src, srcW,
-                    clipX, clipY, clipW, clipH,
-                    (float) transform.getScaleX(),
-                    (float) transform.getShearX(),
-                    (float) transform.getTranslateX() + transX,
-                    (float) transform.getShearY(),
-                    (float) transform.getScaleY(),
-                    (float) transform.getTranslateY() + transY,
-                    1.0f,
-                    false, 0);
+            AffineTransform at = device;
+            at.setTransform(getTransform());
+            at.concatenate(transform);
+            int type = at.getType();
+            double tx = at.getTranslateX(), ty = at.getTranslateY();
+            if ((type & ~AffineTransform.TYPE_TRANSLATION) == 0 && tx == (int) tx && ty == (int) ty) {
+                drawImageTranslated(cimg, (int) tx, (int) ty);
+                return true;
+            }
+            if (at.getShearX() == 0 && at.getShearY() == 0 && cimg != bimg) {
+                //scale only, nearest when the image covers whole pixels
+                double ex = tx + at.getScaleX() * cimg.getWidth();
+                double ey = ty + at.getScaleY() * cimg.getHeight();
+                if (ex == (int) ex && ey == (int) ey && tx == (int) tx && ty == (int) ty) {
+                    int x1 = (int) Math.min(tx, ex), y1 = (int) Math.min(ty, ey);
+                    drawImageScaled(cimg, 0, 0, cimg.getWidth(), cimg.getHeight(),
+                            x1, y1, (int) Math.max(tx, ex) - x1, (int) Math.max(ty, ey) - y1,
+                            at.getScaleX() < 0, at.getScaleY() < 0);
+                    return true;
+                }
+            }
+            //getType() may report a uniform scale for a flip of unit scale, so the scale is checked by the determinant
+            if ((type & (AffineTransform.TYPE_QUADRANT_ROTATION | AffineTransform.TYPE_FLIP)) != 0
+                    && (type & (AffineTransform.TYPE_GENERAL_SCALE | AffineTransform.TYPE_GENERAL_ROTATION | AffineTransform.TYPE_GENERAL_TRANSFORM)) == 0
+                    && Math.abs(at.getDeterminant()) == 1.0
+                    && tx == (int) tx && ty == (int) ty && cimg != bimg) {
+                drawImageQuadrant(cimg, at);
+                return true;
+            }
+            drawImageAffine(cimg,
+                    (float) at.getScaleX(),
+                    (float) at.getShearX(),
+                    (float) tx,
+                    (float) at.getShearY(),
+                    (float) at.getScaleY(),
+                    (float) ty,
+                    clipX, clipY, clipW, clipH);
+            markDirty(at, cimg.getWidth(), cimg.getHeight());
         } else {
             int debug = 1;
         }
@@ -864,7 +1215,10 @@ class BufferedImageGraphics extends Graphics2D {
     @Override
     public boolean drawImage(Image img, int x, int y,
                              ImageObserver observer) {
-        if (img instanceof BufferedImage) {
+        if (img instanceof BufferedImage && !complexTransform) {
+            if (confined) checkThread();
+            drawImageTranslated((BufferedImage) img, x + transX, y + transY);
+        } else if (img instanceof BufferedImage) {
             AffineTransform af = transform.get();
             af.setToIdentity();
             af.translate(x, y);
@@ -874,8 +1228,16 @@ class BufferedImageGraphics extends Graphics2D {
     }
 
     @Override
-    public synchronized boolean drawImage(Image img, int x, int y, int width, int height,
-                                          ImageObserver observer) {
+    public boolean drawImage(Image img, int x, int y, int width, int height,
+                             ImageObserver observer) {
+        if (confined) checkThread();
+        if (img instanceof BufferedImage && !complexTransform) {
+            BufferedImage cimg = ((BufferedImage) img);
+            if (cimg != bimg) {
+                drawImageScaled(cimg, 0, 0, cimg.getWidth(), cimg.getHeight(), x + transX, y + transY, width, height, false, false);
+                return true;
+            }
+        }
         if (img instanceof BufferedImage) {
             BufferedImage cimg = ((BufferedImage) img);
             AffineTransform af = transform.get();
@@ -887,38 +1249,430 @@ class BufferedImageGraphics extends Graphics2D {
         return true;
     }
 
-    public synchronized boolean drawImage(Image img,
-                                          int dx1,
-                                          int dy1,
-                                          int dx2,
-                                          int dy2,
-                                          int sx1,
-                                          int sy1,
-                                          int sx2,
-                                          int sy2,
-                                          ImageObserver observer) {
-        if (img instanceof BufferedImage) {
-            BufferedImage cimg = ((BufferedImage) img);
-            int srcW = cimg.getWidth();
-            byte[] dst = bimg.getData().array();
-            byte[] src = cimg.getData().array();
-            GLMath.img_draw(dst, imgW,
-                    src, srcW,
-                    dx1, dy1, dx2 - dx1, dy2 - dy1,
-                    (float) (dx2 - dx1) / (sx2 - sx1),
-                    (float) 0f,
-                    (float) -sx1,
-                    (float) 0f,
-                    (float) (dy2 - dy1) / (sy2 - sy1),
-                    (float) -sy1,
-                    1.0f,
-                    false, 0);
+    /**
+     * source rectangle sx1,sy1 - sx2,sy2 scaled to destination rectangle dx1,dy1 - dx2,dy2,
+     * a corner pair swapped flips the image like java.awt
+     */
+    public boolean drawImage(Image img,
+                             int dx1,
+                             int dy1,
+                             int dx2,
+                             int dy2,
+                             int sx1,
+                             int sy1,
+                             int sx2,
+                             int sy2,
+                             ImageObserver observer) {
+        if (confined) checkThread();
+        if (!(img instanceof BufferedImage) || dx1 == dx2 || dy1 == dy2 || sx1 == sx2 || sy1 == sy2) {
+            return true;
+        }
+        BufferedImage cimg = ((BufferedImage) img);
+        boolean mirrorX = (dx2 < dx1) != (sx2 < sx1);
+        boolean mirrorY = (dy2 < dy1) != (sy2 < sy1);
+        int dx = Math.min(dx1, dx2), dy = Math.min(dy1, dy2);
+        int sx = Math.min(sx1, sx2), sy = Math.min(sy1, sy2);
+        int dw = Math.abs(dx2 - dx1), dh = Math.abs(dy2 - dy1);
+        int sw = Math.abs(sx2 - sx1), sh = Math.abs(sy2 - sy1);
+        if (!complexTransform && cimg != bimg) {
+            drawImageScaled(cimg, sx, sy, sw, sh, dx + transX, dy + transY, dw, dh, mirrorX, mirrorY);
+            return true;
         }
+        //the source rectangle as a view, drawn with the transform
+        int vx = Math.max(sx, 0), vy = Math.max(sy, 0);
+        int vw = Math.min(sx + sw, cimg.getWidth()) - vx;
+        int vh = Math.min(sy + sh, cimg.getHeight()) - vy;
+        if (vw <= 0 || vh <= 0) {
+            return true;
+        }
+        double scaleX = (double) dw / sw, scaleY = (double) dh / sh;
+        AffineTransform af = transform.get();
+        af.setToTranslation(dx, dy);
+        af.scale(scaleX, scaleY);
+        if (mirrorX) {
+            af.translate(sw, 0);
+            af.scale(-1, 1);
+        }
+        if (mirrorY) {
+            af.translate(0, sh);
+            af.scale(1, -1);
+        }
+        af.translate(vx - sx, vy - sy);
+        drawImage(cimg.getSubimage(vx, vy, vw, vh), af, observer);
         return true;
     }
 
+    /**
+     * source rectangle of cimg scaled to destination rectangle by nearest neighbour, img_draw not used
+     *
+     * @param cimg
+     * @param sx      source rectangle, the part out of image is not drawn
+     * @param sy
+     * @param sw
+     * @param sh
+     * @param dx      destination rectangle in canvas
+     * @param dy
+     * @param dw
+     * @param dh
+     * @param mirrorX source read from right to left
+     * @param mirrorY source read from bottom to top
+     */
+    private void drawImageScaled(BufferedImage cimg, int sx, int sy, int sw, int sh,
+                                 int dx, int dy, int dw, int dh, boolean mirrorX, boolean mirrorY) {
+        if (sw <= 0 || sh <= 0 || dw <= 0 || dh <= 0) {
+            return;
+        }
+        int iw = cimg.getWidth(), ih = cimg.getHeight();
+        if (sw == dw && sh == dh && !mirrorX && !mirrorY && sx == 0 && sy == 0 && sw == iw && sh == ih) {
+            drawImageTranslated(cimg, dx, dy);
+            return;
+        }
+        int x1 = Math.max(clipX, dx);
+        int y1 = Math.max(clipY, dy);
+        int x2 = Math.min(clipX + clipW, dx + dw);
+        int y2 = Math.min(clipY + clipH, dy + dh);
+        if (x2 <= x1 || y2 <= y1) {
+            return;
+        }
+        if (ImageRegistry.enabled) {
+            ImageRegistry.touch(cimg);
+        }
+        //canvas first, if cimg is a view of canvas , it copy out here and the origin is 0,0 after
+        byte[] dst = bimg.getBytesForWrite();
+        BufferedImage owner = cimg.getPixelOwner();
+        int ox = 0, oy = 0;
+        if (owner != cimg) {
+            ox = cimg.originX;
+            oy = cimg.originY;
+        }
+        ScaledBlitter sb = ScaledBlitter.get();
+        if (!sb.columns(sx, sw, dx, dw, mirrorX, iw, ox, x1, x2)) {
+            return;
+        }
+        byte[] src = owner.getBytesForRead();
+        int mode = blitMode(cimg, owner);
+        sb.blit(src, owner.getWidth(), sy, sh, dy, dh, mirrorY, ih, oy, dst, imgW, y1, y2, mode);
+        bimg.markDirty(sb.x1, y1, sb.x2 - sb.x1, y2 - y1);
+    }
+
+    /**
+     * image at integer position without scale, clipped once then each row copied or blended, img_draw not used
+     *
+     * @param cimg
+     * @param dx   canvas position of image 0,0
+     * @param dy
+     */
+    private void drawImageTranslated(BufferedImage cimg, int dx, int dy) {
+        int x1 = Math.max(clipX, dx);
+        int y1 = Math.max(clipY, dy);
+        int x2 = Math.min(clipX + clipW, dx + cimg.getWidth());
+        int y2 = Math.min(clipY + clipH, dy + cimg.getHeight());
+        AlphaInfo info = cimg.getAlphaInfo(false);
+        if (info != null) {
+            if (info.isEmpty()) {
+                return;
+            }
+            x1 = Math.max(x1, dx + info.boundsX1);
+            y1 = Math.max(y1, dy + info.boundsY1);
+            x2 = Math.min(x2, dx + info.boundsX2);
+            y2 = Math.min(y2, dy + info.boundsY2);
+        }
+        if (x2 <= x1 || y2 <= y1) {
+            return;
+        }
+        if (ImageRegistry.enabled) {
+            ImageRegistry.touch(cimg);
+        }
+        //canvas first, if cimg is a view of canvas , it copy out here
+        byte[] dst = bimg.getBytesForWrite();
+        BufferedImage owner = cimg.getPixelOwner();
+        int ox = 0, oy = 0;
+        if (owner != cimg) {
+            ox = cimg.originX;
+            oy = cimg.originY;
+        }
+        byte[] src = owner.getBytesForRead();
+        int srcW = owner.getWidth();
+        if (info != null && info.transparency == Transparency.BITMASK && OpaqueRuns.enabled) {
+            int pos = oy * srcW + ox;
+            info.getRuns(src, pos, srcW).blit(src, pos, srcW, dst, imgW, dx, dy, x1, y1, x2, y2);
+        } else if (info != null && info.transparency != Transparency.TRANSLUCENT) {
+            blitMasked(src, srcW, info, ox, oy, dx - ox, dy - oy, x1, y1, x2 - x1, y2 - y1);
+        } else {
+            int n = x2 - x1;
+            for (int y = y1; y < y2; y++) {
+                int s = (y - dy + oy) * srcW + x1 - dx + ox;
+                if (owner.premultiplied) {
+                    Compositor.blendPremultiplied(src, s, dst, y * imgW + x1, n);
+                } else {
+                    Compositor.blendStraight(src, s, dst, y * imgW + x1, n);
+                }
+            }
+        }
+        bimg.markDirty(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * image to canvas transform of quarter turns and flips, it's one of the J2ME sprite transforms
+     *
+     * @param cimg
+     * @param at   entries are 0 or +-1 , integer translation
+     */
+    private void drawImageQuadrant(BufferedImage cimg, AffineTransform at) {
+        int m00 = (int) at.getScaleX(), m01 = (int) at.getShearX();
+        int m10 = (int) at.getShearY(), m11 = (int) at.getScaleY();
+        int w = cimg.getWidth(), h = cimg.getHeight();
+        //one source pixel right moves m00,m10 on canvas , one source pixel down moves m01,m11
+        int trans;
+        if (m01 == 0) {
+            if (m00 > 0) {
+                trans = m11 > 0 ? GGraphics.TRANS_NONE : GGraphics.TRANS_MIRROR_ROT180;
+            } else {
+                trans = m11 > 0 ? GGraphics.TRANS_MIRROR : GGraphics.TRANS_ROT180;
+            }
+        } else if (m01 < 0) {
+            trans = m10 > 0 ? GGraphics.TRANS_ROT90 : GGraphics.TRANS_MIRROR_ROT90;
+        } else {
+            trans = m10 > 0 ? GGraphics.TRANS_MIRROR_ROT270 : GGraphics.TRANS_ROT270;
+        }
+        int dx = (int) at.getTranslateX() + Math.min(0, m00 * w) + Math.min(0, m01 * h);
+        int dy = (int) at.getTranslateY() + Math.min(0, m10 * w) + Math.min(0, m11 * h);
+        blitRegion(cimg, 0, 0, w, h, trans, dx, dy);
+    }
+
+    /**
+     * draw image by img_draw , the source may be a sub image view which pixels are in its parent
+     *
+     * @param cimg source image
+     * @param m00  image to canvas transform, translate applied
+     * @param m01
+     * @param m02
+     * @param m10
+     * @param m11
+     * @param m12
+     * @param cx   clip in canvas
+     * @param cy
+     * @param cw
+     * @param ch
+     */
+    private void drawImageAffine(BufferedImage cimg, float m00, float m01, float m02, float m10, float m11, float m12,
+                                 int cx, int cy, int cw, int ch) {
+        if (ImageRegistry.enabled) {
+            ImageRegistry.touch(cimg);
+        }
+        //canvas first, if cimg is a view of canvas , it copy out here
+        byte[] dst = bimg.getBytesForWrite();
+        if (cimg.isSubimageView() && (m01 != 0f || m10 != 0f)) {
+            cimg.detach();
+        }
+        BufferedImage owner = cimg.getPixelOwner();
+        byte[] src = owner.getBytesForRead();
+        int ox = 0, oy = 0;
+        if (owner != cimg) {
+            //limit to the view area, no shear here so it's a rectangle
+            ox = cimg.originX;
+            oy = cimg.originY;
+            float vx1 = m02, vx2 = m02 + m00 * cimg.getWidth();
+            float vy1 = m12, vy2 = m12 + m11 * cimg.getHeight();
+            int x1 = Math.round(Math.min(vx1, vx2));
+            int x2 = Math.round(Math.max(vx1, vx2));
+            int y1 = Math.round(Math.min(vy1, vy2));
+            int y2 = Math.round(Math.max(vy1, vy2));
+            if (x1 < cx) x1 = cx;
+            if (y1 < cy) y1 = cy;
+            if (x2 > cx + cw) x2 = cx + cw;
+            if (y2 > cy + ch) y2 = cy + ch;
+            if (x2 <= x1 || y2 <= y1) {
+                return;
+            }
+            cx = x1;
+            cy = y1;
+            cw = x2 - x1;
+            ch = y2 - y1;
+            m02 -= m00 * ox;
+            m12 -= m11 * oy;
+        }
+        AlphaInfo info = cimg.getAlphaInfo(false);
+        if (info != null) {
+            if (info.isEmpty()) {
+                return;
+            }
+            //trim clip to the transformed bounding box of not transparent pixels
+            float bx1 = info.boundsX1 + ox, by1 = info.boundsY1 + oy;
+            float bx2 = info.boundsX2 + ox, by2 = info.boundsY2 + oy;
+            float px1 = m00 * bx1 + m01 * by1, px2 = m00 * bx2 + m01 * by1;
+            float px3 = m00 * bx1 + m01 * by2, px4 = m00 * bx2 + m01 * by2;
+            float py1 = m10 * bx1 + m11 * by1, py2 = m10 * bx2 + m11 * by1;
+            float py3 = m10 * bx1 + m11 * by2, py4 = m10 * bx2 + m11 * by2;
+            int x1 = (int) Math.floor(m02 + Math.min(Math.min(px1, px2), Math.min(px3, px4)));
+            int x2 = (int) Math.ceil(m02 + Math.max(Math.max(px1, px2), Math.max(px3, px4)));
+            int y1 = (int) Math.floor(m12 + Math.min(Math.min(py1, py2), Math.min(py3, py4)));
+            int y2 = (int) Math.ceil(m12 + Math.max(Math.max(py1, py2), Math.max(py3, py4)));
+            if (x1 < cx) x1 = cx;
+            if (y1 < cy) y1 = cy;
+            if (x2 > cx + cw) x2 = cx + cw;
+            if (y2 > cy + ch) y2 = cy + ch;
+            if (x2 <= x1 || y2 <= y1) {
+                return;
+            }
+            cx = x1;
+            cy = y1;
+            cw = x2 - x1;
+            ch = y2 - y1;
+        }
+        //opaque or 1 bit alpha pixels are the same premultiplied or not , no conversion for them
+        if (owner.premultiplied && (info == null || info.transparency == Transparency.TRANSLUCENT)) {
+            RasterBackends.current.drawPremultiplied(dst, imgW,
+                    src, owner.getWidth(),
+                    cx, cy, cw, ch,
+                    m00, m01, m02, m10, m11, m12,
+                    1.0f);
+            return;
+        }
+        RasterBackends.current.draw(dst, imgW,
+                src, owner.getWidth(),
+                cx, cy, cw, ch,
+                m00, m01, m02, m10, m11, m12,
+                1.0f,
+                false, 0);
+    }
+
+    /**
+     * blit OPAQUE or BITMASK source at integer position, no scale
+     * rows copied in the span of AlphaInfo, transparent pixels skipped
+     *
+     * @param src  bytes of pixel owner
+     * @param srcW
+     * @param info of the drawn image
+     * @param ox   position of drawn image in pixel owner
+     * @param oy
+     * @param dx   canvas position of pixel owner 0,0
+     * @param dy
+     * @param cx   clip
+     * @param cy
+     * @param cw
+     * @param ch
+     */
+    private void blitMasked(byte[] src, int srcW, AlphaInfo info, int ox, int oy, int dx, int dy, int cx, int cy, int cw, int ch) {
+        int rows = info.spanStart.length;
+        int x1 = Math.max(cx, 0);
+        int y1 = Math.max(Math.max(cy, dy + oy), 0);
+        int x2 = Math.min(cx + cw, imgW);
+        int y2 = Math.min(Math.min(cy + ch, dy + oy + rows), imgH);
+        if (x2 <= x1 || y2 <= y1) {
+            return;
+        }
+        byte[] dst = bimg.getBytesForWrite();
+        boolean opaque = info.transparency == Transparency.OPAQUE;
+        for (int y = y1; y < y2; y++) {
+            int row = y - dy - oy;
+            int sx1 = Math.max(info.spanStart[row] + ox, x1 - dx);
+            int sx2 = Math.min(info.spanEnd[row] + ox, x2 - dx);
+            if (sx2 <= sx1) {
+                continue;
+            }
+            int sy = y - dy;
+            int s = (sy * srcW + sx1) << 2;
+            int send = (sy * srcW + sx2) << 2;
+            int d = (y * imgW + sx1 + dx) << 2;
+            if (opaque) {
+                System.arraycopy(src, s, dst, d, send - s);
+                continue;
+            }
+            while (s < send) {
+                if (src[s + 3] == 0) {
+                    s += 4;
+                    d += 4;
+                    continue;
+                }
+                int run = s;
+                do {
+                    s += 4;
+                } while (s < send && src[s + 3] != 0);
+                System.arraycopy(src, run, dst, d, s - run);
+                d += s - run;
+            }
+        }
+    }
+
     public void setColor(Color color) {
+        if (confined) checkThread();
         super.setColor(color);
-        curColor = color.getRGB();
+        setColorValue(color.getRGB());
+    }
+
+    /**
+     * a new graphics of the same image with the state of this one , confined to the same thread if this one is
+     */
+    public Graphics create() {
+        if (confined) checkThread();
+        BufferedImageGraphics g = new BufferedImageGraphics(bimg, confined);
+        copyStateTo(g);
+        return g;
+    }
+
+    @Override
+    protected void copyStateTo(Graphics2D g) {
+        super.copyStateTo(g);
+        BufferedImageGraphics bg = (BufferedImageGraphics) g;
+        bg.owner = owner;
+        bg.curColor = curColor;
+        bg.fillColor = fillColor;
+    }
+
+    /**
+     * color by ARGB value , the Color of getColor() not changed , used by replay
+     *
+     * @param argb
+     */
+    void setColorValue(int argb) {
+        curColor = argb;
+        fillColor = bimg.premultiplied ? ScanlineConverter.premultiply(argb) : argb;
+    }
+
+    /**
+     * mark an area of canvas changed, the area is clipped by current clip
+     *
+     * @param x canvas coordinate, translate applied
+     * @param y
+     * @param w
+     * @param h
+     */
+    void markDirty(int x, int y, int w, int h) {
+        int x2 = x + w;
+        int y2 = y + h;
+        if (x < clipX) x = clipX;
+        if (y < clipY) y = clipY;
+        if (x2 > clipX + clipW) x2 = clipX + clipW;
+        if (y2 > clipY + clipH) y2 = clipY + clipH;
+        if (x2 > x && y2 > y) {
+            bimg.markDirty(x, y, x2 - x, y2 - y);
+        }
+    }
+
+    /**
+     * mark the bounds of a transformed image changed
+     *
+     * @param at   image to canvas transform, transform of graphics composed
+     * @param srcW
+     * @param srcH
+     */
+    private void markDirty(AffineTransform at, int srcW, int srcH) {
+        double m00 = at.getScaleX(), m01 = at.getShearX(), m02 = at.getTranslateX();
+        double m10 = at.getShearY(), m11 = at.getScaleY(), m12 = at.getTranslateY();
+        double minX = m02, maxX = m02, minY = m12, maxY = m12;
+        for (int i = 1; i < 4; i++) {
+            int sx = (i & 1) != 0 ? srcW : 0;
+            int sy = (i & 2) != 0 ? srcH : 0;
+            double dx = m00 * sx + m01 * sy + m02;
+            double dy = m10 * sx + m11 * sy + m12;
+            if (dx < minX) minX = dx;
+            if (dx > maxX) maxX = dx;
+            if (dy < minY) minY = dy;
+            if (dy > maxY) maxY = dy;
+        }
+        int x1 = (int) Math.floor(minX);
+        int y1 = (int) Math.floor(minY);
+        markDirty(x1, y1, (int) Math.ceil(maxX) - x1 + 1, (int) Math.ceil(maxY) - y1 + 1);
     }
 }
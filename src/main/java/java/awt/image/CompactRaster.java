@@ -0,0 +1,278 @@
+package java.awt.image;
+
+/**
+ * compact pixel store for TYPE_USHORT_565_RGB , TYPE_BYTE_GRAY , TYPE_BYTE_INDEXED
+ * <p>
+ * 565: 2 bytes per pixel, gray and indexed: 1 byte per pixel
+ * the pixels expand to R,G,B,A bytes only when present or blit
+ * when the image is drawn into, the pixel arrays are dropped and only the type and palette kept,
+ * the R,G,B,A bytes of the image are reduced to the colors of this format instead
+ * all position and count are in pixel
+ */
+class CompactRaster {
+    final int type;
+    final int width, height;
+    short[] shorts;//565
+    byte[] bytes;//gray , indexed
+    int[] palette;//indexed, ARGB
+    boolean defaultPalette;
+
+    //last color search result of custom palette
+    int lastArgb, lastIndex = -1;
+
+    static boolean isCompactType(int type) {
+        return type == BufferedImage.TYPE_USHORT_565_RGB
+                || type == BufferedImage.TYPE_BYTE_GRAY
+                || type == BufferedImage.TYPE_BYTE_INDEXED;
+    }
+
+    CompactRaster(int type, int width, int height) {
+        this.type = type;
+        this.width = width;
+        this.height = height;
+        allocPixels();
+        if (type == BufferedImage.TYPE_BYTE_INDEXED) {
+            palette = createDefaultPalette();
+            defaultPalette = true;
+        }
+    }
+
+    /**
+     * copy of a rectangle of src , without pixels if src has none
+     */
+    CompactRaster(CompactRaster src, int x, int y, int width, int height) {
+        this.type = src.type;
+        this.width = width;
+        this.height = height;
+        if (!src.hasPixels()) {
+            //nothing to copy
+        } else if (src.shorts != null) {
+            shorts = new short[width * height];
+            for (int j = 0; j < height; j++) {
+                System.arraycopy(src.shorts, (y + j) * src.width + x, shorts, j * width, width);
+            }
+        } else {
+            bytes = new byte[width * height];
+            for (int j = 0; j < height; j++) {
+                System.arraycopy(src.bytes, (y + j) * src.width + x, bytes, j * width, width);
+            }
+        }
+        if (src.palette != null) {
+            palette = src.palette.clone();
+            defaultPalette = src.defaultPalette;
+        }
+    }
+
+    private void allocPixels() {
+        if (type == BufferedImage.TYPE_USHORT_565_RGB) {
+            shorts = new short[width * height];
+        } else {
+            bytes = new byte[width * height];
+        }
+    }
+
+    /**
+     * the pixels are in this raster , not in the bytes of image
+     */
+    boolean hasPixels() {
+        return shorts != null || bytes != null;
+    }
+
+    /**
+     * the image holds its pixels as R,G,B,A bytes from now , type and palette kept
+     */
+    void dropPixels() {
+        shorts = null;
+        bytes = null;
+    }
+
+    /**
+     * 6x6x6 color cube and 40 gray levels
+     *
+     * @return
+     */
+    static int[] createDefaultPalette() {
+        int[] pal = new int[256];
+        int i = 0;
+        for (int r = 0; r < 6; r++) {
+            for (int g = 0; g < 6; g++) {
+                for (int b = 0; b < 6; b++) {
+                    pal[i++] = 0xff000000 | (r * 51 << 16) | (g * 51 << 8) | (b * 51);
+                }
+            }
+        }
+        for (int gray = 0; i < 256; gray++) {
+            int v = gray * 255 / 39;
+            pal[i++] = 0xff000000 | (v << 16) | (v << 8) | v;
+        }
+        return pal;
+    }
+
+    void setPalette(int[] argb) {
+        palette = new int[256];
+        System.arraycopy(argb, 0, palette, 0, argb.length < 256 ? argb.length : 256);
+        defaultPalette = false;
+        lastIndex = -1;
+    }
+
+    /**
+     * bytes of pixel data
+     *
+     * @return
+     */
+    int getMemorySize() {
+        return shorts != null ? shorts.length * 2 : bytes != null ? bytes.length : 0;
+    }
+
+    int getArgb(int pos) {
+        switch (type) {
+            case BufferedImage.TYPE_USHORT_565_RGB: {
+                int c = shorts[pos];
+                int r = (c >> 11) & 0x1f;
+                int g = (c >> 5) & 0x3f;
+                int b = c & 0x1f;
+                return 0xff000000 | (((r << 3) | (r >> 2)) << 16) | (((g << 2) | (g >> 4)) << 8) | ((b << 3) | (b >> 2));
+            }
+            case BufferedImage.TYPE_BYTE_GRAY: {
+                int v = bytes[pos] & 0xff;
+                return 0xff000000 | (v << 16) | (v << 8) | v;
+            }
+            default:
+                return palette[bytes[pos] & 0xff];
+        }
+    }
+
+    void setArgb(int pos, int c) {
+        switch (type) {
+            case BufferedImage.TYPE_USHORT_565_RGB:
+                shorts[pos] = (short) (((c >> 8) & 0xf800) | ((c >> 5) & 0x07e0) | ((c >> 3) & 0x001f));
+                break;
+            case BufferedImage.TYPE_BYTE_GRAY:
+                bytes[pos] = (byte) ((((c >> 16) & 0xff) * 77 + ((c >> 8) & 0xff) * 150 + (c & 0xff) * 29) >> 8);
+                break;
+            default:
+                bytes[pos] = (byte) findIndex(c);
+        }
+    }
+
+    /**
+     * the color kept after stored in this format
+     *
+     * @param c ARGB
+     * @return ARGB
+     */
+    int reduce(int c) {
+        switch (type) {
+            case BufferedImage.TYPE_USHORT_565_RGB: {
+                int r = (c >> 19) & 0x1f;
+                int g = (c >> 10) & 0x3f;
+                int b = (c >> 3) & 0x1f;
+                return 0xff000000 | (((r << 3) | (r >> 2)) << 16) | (((g << 2) | (g >> 4)) << 8) | ((b << 3) | (b >> 2));
+            }
+            case BufferedImage.TYPE_BYTE_GRAY: {
+                int v = (((c >> 16) & 0xff) * 77 + ((c >> 8) & 0xff) * 150 + (c & 0xff) * 29) >> 8;
+                return 0xff000000 | (v << 16) | (v << 8) | v;
+            }
+            default:
+                return palette[findIndex(c)];
+        }
+    }
+
+    /**
+     * R,G,B,A bytes reduced in place to the colors of this format
+     *
+     * @param rgba
+     * @param pos
+     * @param count
+     */
+    void reduceRgba(byte[] rgba, int pos, int count) {
+        int s = pos * BufferedImage.BYTE_PER_PIXEL;
+        for (int smax = s + count * BufferedImage.BYTE_PER_PIXEL; s < smax; s += 4) {
+            int c = reduce(((rgba[s + 3] & 0xff) << 24)
+                    | ((rgba[s] & 0xff) << 16)
+                    | ((rgba[s + 1] & 0xff) << 8)
+                    | (rgba[s + 2] & 0xff));
+            rgba[s] = (byte) (c >> 16);
+            rgba[s + 1] = (byte) (c >> 8);
+            rgba[s + 2] = (byte) c;
+            rgba[s + 3] = (byte) (c >>> 24);
+        }
+    }
+
+    /**
+     * nearest palette entry of color
+     *
+     * @param c ARGB
+     * @return
+     */
+    int findIndex(int c) {
+        if (defaultPalette) {
+            int r = (((c >> 16) & 0xff) + 25) / 51;
+            int g = (((c >> 8) & 0xff) + 25) / 51;
+            int b = ((c & 0xff) + 25) / 51;
+            return r * 36 + g * 6 + b;
+        }
+        if (lastIndex >= 0 && lastArgb == c) {
+            return lastIndex;
+        }
+        int a = c >>> 24, r = (c >> 16) & 0xff, g = (c >> 8) & 0xff, b = c & 0xff;
+        int best = 0;
+        int bestDist = Integer.MAX_VALUE;
+        for (int i = 0; i < palette.length; i++) {
+            int p = palette[i];
+            int da = (p >>> 24) - a;
+            int dr = ((p >> 16) & 0xff) - r;
+            int dg = ((p >> 8) & 0xff) - g;
+            int db = (p & 0xff) - b;
+            int dist = da * da + dr * dr + dg * dg + db * db;
+            if (dist < bestDist) {
+                bestDist = dist;
+                best = i;
+                if (dist == 0) break;
+            }
+        }
+        lastArgb = c;
+        lastIndex = best;
+        return best;
+    }
+
+    /**
+     * compact -> R,G,B,A bytes
+     *
+     * @param srcPos
+     * @param dst
+     * @param dstPos
+     * @param count
+     */
+    void toRgba(int srcPos, byte[] dst, int dstPos, int count) {
+        int d = dstPos * BufferedImage.BYTE_PER_PIXEL;
+        for (int s = srcPos, smax = srcPos + count; s < smax; s++, d += 4) {
+            int c = getArgb(s);
+            dst[d] = (byte) (c >> 16);
+            dst[d + 1] = (byte) (c >> 8);
+            dst[d + 2] = (byte) c;
+            dst[d + 3] = (byte) (c >>> 24);
+        }
+    }
+
+    /**
+     * R,G,B,A bytes -> compact , the pixel arrays created if dropped
+     *
+     * @param src
+     * @param srcPos
+     * @param dstPos
+     * @param count
+     */
+    void fromRgba(byte[] src, int srcPos, int dstPos, int count) {
+        if (!hasPixels()) {
+            allocPixels();
+        }
+        int s = srcPos * BufferedImage.BYTE_PER_PIXEL;
+        for (int d = dstPos, dmax = dstPos + count; d < dmax; d++, s += 4) {
+            setArgb(d, ((src[s + 3] & 0xff) << 24)
+                    | ((src[s] & 0xff) << 16)
+                    | ((src[s + 1] & 0xff) << 8)
+                    | (src[s + 2] & 0xff));
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package java.awt.image;
+
+/**
+ * software compositing on R,G,B,A bytes
+ * <p>
+ * all position and count are in pixel
+ */
+class Compositor {
+
+    //straight alpha copy of a part of premultiplied image, reused when the size is the same
+    static ThreadLocal<byte[]> straightBuffer = new ThreadLocal<>();
+
+    /**
+     * premultiplied source over destination
+     * out = src + dst * (255 - srcA) / 255 , no divide
+     *
+     * @param src    premultiplied bytes
+     * @param srcPos
+     * @param dst
+     * @param dstPos
+     * @param count
+     */
+    static void blendPremultiplied(byte[] src, int srcPos, byte[] dst, int dstPos, int count) {
+        blendPremultiplied(src, srcPos, dst, dstPos, count, 255);
+    }
+
+    /**
+     * premultiplied source scaled by global alpha over destination
+     *
+     * @param alpha global alpha 0..255
+     */
+    static void blendPremultiplied(byte[] src, int srcPos, byte[] dst, int dstPos, int count, int alpha) {
+        if (alpha <= 0) {
+            return;
+        }
+        int s = srcPos * BufferedImage.BYTE_PER_PIXEL;
+        int d = dstPos * BufferedImage.BYTE_PER_PIXEL;
+        for (int smax = s + count * BufferedImage.BYTE_PER_PIXEL; s < smax; s += 4, d += 4) {
+            int a = src[s + 3] & 0xff;
+            if (a == 0) {
+                continue;
+            }
+            if (a == 255 && alpha == 255) {
+                dst[d] = src[s];
+                dst[d + 1] = src[s + 1];
+                dst[d + 2] = src[s + 2];
+                dst[d + 3] = (byte) 0xff;
+                continue;
+            }
+            int rb = rbLanes(src, s), ga = gaLanes(src, s);
+            if (alpha != 255) {
+                rb = mulLanes(rb, alpha);
+                ga = mulLanes(ga, alpha);
+            }
+            overPremultiplied(dst, d, rb, ga);
+        }
+    }
+
+    /**
+     * straight alpha source over destination
+     * out = src * srcA / 255 + dst * (255 - srcA) / 255
+     *
+     * @param src    straight alpha bytes
+     * @param srcPos
+     * @param dst
+     * @param dstPos
+     * @param count
+     */
+    static void blendStraight(byte[] src, int srcPos, byte[] dst, int dstPos, int count) {
+        blendStraight(src, srcPos, dst, dstPos, count, 255);
+    }
+
+    /**
+     * straight alpha source over destination , source alpha scaled by global alpha
+     *
+     * @param alpha global alpha 0..255
+     */
+    static void blendStraight(byte[] src, int srcPos, byte[] dst, int dstPos, int count, int alpha) {
+        if (alpha <= 0) {
+            return;
+        }
+        int s = srcPos * BufferedImage.BYTE_PER_PIXEL;
+        int d = dstPos * BufferedImage.BYTE_PER_PIXEL;
+        for (int smax = s + count * BufferedImage.BYTE_PER_PIXEL; s < smax; s += 4, d += 4) {
+            int a = src[s + 3] & 0xff;
+            if (alpha != 255) {
+                a = ScanlineConverter.mul255(a, alpha);
+            }
+            if (a == 0) {
+                continue;
+            }
+            if (a == 255) {
+                dst[d] = src[s];
+                dst[d + 1] = src[s + 1];
+                dst[d + 2] = src[s + 2];
+                dst[d + 3] = (byte) 0xff;
+                continue;
+            }
+            over(dst, d, rbLanes(src, s), (src[s + 1] & 0xff) << 16 | 0xff, a);
+        }
+    }
+
+    /**
+     * one color through a coverage mask , the alpha byte of mask is the coverage, e.g. a glyph
+     *
+     * @param mask    R,G,B,A bytes , only alpha used
+     * @param maskPos
+     * @param dst
+     * @param dstPos
+     * @param count
+     * @param rgb     color , alpha byte ignored
+     * @param alpha   global alpha 0..255
+     */
+    static void blendColor(byte[] mask, int maskPos, byte[] dst, int dstPos, int count, int rgb, int alpha) {
+        if (alpha <= 0) {
+            return;
+        }
+        int s = maskPos * BufferedImage.BYTE_PER_PIXEL + 3;
+        int d = dstPos * BufferedImage.BYTE_PER_PIXEL;
+        byte r = (byte) (rgb >> 16), g = (byte) (rgb >> 8), b = (byte) rgb;
+        int rb = rgb & 0x00ff00ff, g1 = (rgb & 0xff00) << 8 | 0xff;
+        for (int smax = s + count * BufferedImage.BYTE_PER_PIXEL; s < smax; s += 4, d += 4) {
+            int a = mask[s] & 0xff;
+            if (alpha != 255) {
+                a = ScanlineConverter.mul255(a, alpha);
+            }
+            if (a == 0) {
+                continue;
+            }
+            if (a == 255) {
+                dst[d] = r;
+                dst[d + 1] = g;
+                dst[d + 2] = b;
+                dst[d + 3] = (byte) 0xff;
+                continue;
+            }
+            over(dst, d, rb, g1, a);
+        }
+    }
+
+    /**
+     * one pixel , 0 < a < 255 , byte positions
+     *
+     * @param a             straight source alpha, ignored when premultiplied
+     * @param premultiplied source and destination keep premultiplied bytes
+     */
+    static void blendPixel(byte[] src, int s, byte[] dst, int d, int a, boolean premultiplied) {
+        if (premultiplied) {
+            overPremultiplied(dst, d, rbLanes(src, s), gaLanes(src, s));
+        } else {
+            over(dst, d, rbLanes(src, s), (src[s + 1] & 0xff) << 16 | 0xff, a);
+        }
+    }
+
+    /*
+     * two channels are blended by one multiply, a lane holds a channel in bits 0..7 or 16..23,
+     * the 8 bits above each channel leave room for the product.
+     * R and B share a word, G and A share the other
+     */
+
+    /**
+     * x * a / 255 rounded on both lanes , same result as ScanlineConverter.mul255 on each
+     */
+    static int mulLanes(int x, int a) {
+        int t = x * a + 0x00800080;
+        return ((t + ((t >>> 8) & 0x00ff00ff)) >>> 8) & 0x00ff00ff;
+    }
+
+    static int rbLanes(byte[] b, int p) {
+        return (b[p] & 0xff) << 16 | (b[p + 2] & 0xff);
+    }
+
+    static int gaLanes(byte[] b, int p) {
+        return (b[p + 1] & 0xff) << 16 | (b[p + 3] & 0xff);
+    }
+
+    /**
+     * straight source over dst[d] , 0 < a < 255
+     *
+     * @param rb R and B lanes of source
+     * @param g1 G lane of source and 255 , the alpha lane gives a * 255 / 255
+     * @param a  source alpha
+     */
+    static void over(byte[] dst, int d, int rb, int g1, int a) {
+        int ia = 255 - a;
+        rb = mulLanes(rb, a) + mulLanes(rbLanes(dst, d), ia);
+        int ga = mulLanes(g1, a) + mulLanes(gaLanes(dst, d), ia);
+        dst[d] = (byte) (rb >> 16);
+        dst[d + 1] = (byte) (ga >> 16);
+        dst[d + 2] = (byte) rb;
+        dst[d + 3] = (byte) ga;
+    }
+
+    /**
+     * premultiplied source over dst[d] , out = src + dst * (255 - srcA) / 255
+     *
+     * @param rb R and B lanes of source
+     * @param ga G and A lanes of source
+     */
+    static void overPremultiplied(byte[] dst, int d, int rb, int ga) {
+        int ia = 255 - (ga & 0xff);
+        rb += mulLanes(rbLanes(dst, d), ia);
+        ga += mulLanes(gaLanes(dst, d), ia);
+        dst[d] = (byte) (rb >> 16);
+        dst[d + 1] = (byte) (ga >> 16);
+        dst[d + 2] = (byte) rb;
+        dst[d + 3] = (byte) ga;
+    }
+
+    /**
+     * straight alpha copy of a rectangle of premultiplied bytes, for the blit which only blend straight alpha
+     * the buffer is valid until next call of this method from the same thread
+     *
+     * @param src
+     * @param stride pixels per row of src
+     * @param x      rectangle to copy , it's 0,0 of the copy
+     * @param y
+     * @param w
+     * @param h
+     * @return w * h pixels
+     */
+    static byte[] toStraight(byte[] src, int stride, int x, int y, int w, int h) {
+        int len = w * h * BufferedImage.BYTE_PER_PIXEL;
+        byte[] buf = straightBuffer.get();
+        if (buf == null || buf.length != len) {
+            buf = new byte[len];
+            straightBuffer.set(buf);
+        }
+        int d = 0;
+        for (int j = 0; j < h; j++) {
+            int s = ((y + j) * stride + x) * BufferedImage.BYTE_PER_PIXEL;
+            for (int smax = s + w * BufferedImage.BYTE_PER_PIXEL; s < smax; s += 4, d += 4) {
+                int a = src[s + 3] & 0xff;
+                if (a == 255 || a == 0) {
+                    buf[d] = src[s];
+                    buf[d + 1] = src[s + 1];
+                    buf[d + 2] = src[s + 2];
+                } else {
+                    buf[d] = (byte) ScanlineConverter.div255(src[s] & 0xff, a);
+                    buf[d + 1] = (byte) ScanlineConverter.div255(src[s + 1] & 0xff, a);
+                    buf[d + 2] = (byte) ScanlineConverter.div255(src[s + 2] & 0xff, a);
+                }
+                buf[d + 3] = (byte) a;
+            }
+        }
+        return buf;
+    }
+}
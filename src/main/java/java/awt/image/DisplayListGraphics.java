@@ -0,0 +1,754 @@
+package java.awt.image;
+
+import org.mini.gui.GGraphics;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+
+/**
+ * graphics records primitives into an int command buffer, drawn to the image by flush()
+ * <p>
+ * a command is: header ( length << 8 | op ), then for drawing commands the bounds x1,y1,x2,y2 in canvas
+ * ( x2 y2 exclusive ), then the arguments. coordinates are recorded with translate applied,
+ * the clip, color, font and transform are recorded as state commands only when they changed before a drawing command
+ * <p>
+ * under a rotate, scale or shear the coordinates are recorded in user space with a transform command,
+ * the bounds are the transformed bounds
+ * <p>
+ * replay culls commands out of the clip, and merges fills of the same color that touch on a whole side,
+ * so a row of tiles or a line built of 1 pixel rects is filled once
+ * <p>
+ * the images drawn are referenced not copied , they must not change before flush
+ * the command buffer of a frame can be copied out by getCommands() for compare and count
+ */
+public class DisplayListGraphics extends Graphics2D {
+    static final int OP_COLOR = 1;
+    static final int OP_CLIP = 2;
+    static final int OP_FONT = 3;
+    static final int OP_TRANSFORM = 4;
+    static final int OP_FILL_RECT = 10;
+    static final int OP_LINE = 11;
+    static final int OP_ROUND_RECT = 12;
+    static final int OP_ARC = 13;
+    static final int OP_POLYGON = 14;
+    static final int OP_TEXT = 15;
+    static final int OP_IMAGE = 16;
+    static final int OP_IMAGE_RECT = 17;
+    static final int OP_REGION = 18;
+    static final int OP_COPY_AREA = 19;
+
+    BufferedImage bimg;
+    int imgW, imgH;
+    int curColor;
+
+    int[] cmds = new int[256];
+    int size, commandCount;
+    Object[] refs = new Object[16];
+    int refCount;
+
+    //state at end of the commands recorded
+    int recColor, recClipX, recClipY, recClipW, recClipH;
+    Font recFont;
+    AffineTransform recTransform = new AffineTransform();
+    int[] bounds = new int[4];
+
+    //replay
+    BufferedImageGraphics target;
+    int[] polyX = new int[16], polyY = new int[16];
+    char[] chars = new char[64];
+    AffineTransform replayTransform = new AffineTransform();
+    int culledCount, mergedCount;
+
+    public DisplayListGraphics(BufferedImage bimg) {
+        super(null, 0);
+        this.bimg = bimg;
+        imgW = bimg.getWidth();
+        imgH = bimg.getHeight();
+        target = new BufferedImageGraphics(bimg, false);
+        setClip(0, 0, imgW, imgH);
+        reset();
+    }
+
+    /**
+     * drop the commands , the state of this graphics kept
+     */
+    public void reset() {
+        for (int i = 0; i < refCount; i++) {
+            refs[i] = null;
+        }
+        size = commandCount = refCount = 0;
+        //the state of a fresh replay
+        recColor = 0;
+        recClipX = recClipY = 0;
+        recClipW = imgW;
+        recClipH = imgH;
+        recFont = null;
+        recTransform.setToIdentity();
+    }
+
+    /**
+     * draw the commands to image and drop them
+     */
+    public void flush() {
+        replay();
+        reset();
+    }
+
+    /**
+     * draw the commands to image , the commands kept
+     */
+    public void replay() {
+        BufferedImageGraphics g = target;
+        replayTransform.setToIdentity();
+        g.setTransform(replayTransform);
+        g.setDeviceClip(0, 0, imgW, imgH);
+        g.setColorValue(0);
+        g.setFont(null);
+        int cx1 = 0, cy1 = 0, cx2 = imgW, cy2 = imgH;
+        //pending fill , px2 <= px1 when none
+        int px1 = 0, py1 = 0, px2 = 0, py2 = 0;
+        int culled = 0, merged = 0;
+        int[] c = cmds;
+        for (int p = 0; p < size; p += c[p] >>> 8) {
+            int op = c[p] & 0xff;
+            if (op >= OP_FILL_RECT) {
+                int x1 = c[p + 1], y1 = c[p + 2], x2 = c[p + 3], y2 = c[p + 4];
+                if (x2 <= cx1 || y2 <= cy1 || x1 >= cx2 || y1 >= cy2 || x2 <= x1 || y2 <= y1) {
+                    culled++;
+                    continue;
+                }
+                if (op == OP_FILL_RECT) {
+                    if (px2 > px1) {
+                        if (py1 == y1 && py2 == y2 && (px2 == x1 || x2 == px1)) {
+                            px1 = Math.min(px1, x1);
+                            px2 = Math.max(px2, x2);
+                            merged++;
+                            continue;
+                        }
+                        if (px1 == x1 && px2 == x2 && (py2 == y1 || y2 == py1)) {
+                            py1 = Math.min(py1, y1);
+                            py2 = Math.max(py2, y2);
+                            merged++;
+                            continue;
+                        }
+                        g.fillRect(px1, py1, px2 - px1, py2 - py1);
+                    }
+                    px1 = x1;
+                    py1 = y1;
+                    px2 = x2;
+                    py2 = y2;
+                    continue;
+                }
+            }
+            if (px2 > px1) {
+                g.fillRect(px1, py1, px2 - px1, py2 - py1);
+                px2 = px1;
+            }
+            int a = p + 5;//arguments of drawing command
+            switch (op) {
+                case OP_COLOR:
+                    g.setColorValue(c[p + 1]);
+                    break;
+                case OP_CLIP:
+                    cx1 = c[p + 1];
+                    cy1 = c[p + 2];
+                    cx2 = cx1 + c[p + 3];
+                    cy2 = cy1 + c[p + 4];
+                    g.setDeviceClip(cx1, cy1, c[p + 3], c[p + 4]);
+                    break;
+                case OP_TRANSFORM:
+                    replayTransform.setTransform(Float.intBitsToFloat(c[p + 1]), Float.intBitsToFloat(c[p + 4]),
+                            Float.intBitsToFloat(c[p + 2]), Float.intBitsToFloat(c[p + 5]),
+                            Float.intBitsToFloat(c[p + 3]), Float.intBitsToFloat(c[p + 6]));
+                    g.setTransform(replayTransform);
+                    break;
+                case OP_FONT:
+                    g.setFont((Font) refs[c[p + 1]]);
+                    break;
+                case OP_LINE:
+                    g.drawLine(c[a], c[a + 1], c[a + 2], c[a + 3]);
+                    break;
+                case OP_ROUND_RECT:
+                    if (c[a + 6] != 0) {
+                        g.fillRoundRect(c[a], c[a + 1], c[a + 2], c[a + 3], c[a + 4], c[a + 5]);
+                    } else {
+                        g.drawRoundRect(c[a], c[a + 1], c[a + 2], c[a + 3], c[a + 4], c[a + 5]);
+                    }
+                    break;
+                case OP_ARC:
+                    if (c[a + 6] != 0) {
+                        g.fillArc(c[a], c[a + 1], c[a + 2], c[a + 3], c[a + 4], c[a + 5]);
+                    } else {
+                        g.drawArc(c[a], c[a + 1], c[a + 2], c[a + 3], c[a + 4], c[a + 5]);
+                    }
+                    break;
+                case OP_POLYGON: {
+                    int n = c[a + 1];
+                    if (polyX.length < n) {
+                        polyX = new int[n];
+                        polyY = new int[n];
+                    }
+                    System.arraycopy(c, a + 2, polyX, 0, n);
+                    System.arraycopy(c, a + 2 + n, polyY, 0, n);
+                    if (c[a] != 0) {
+                        g.fillPolygon(polyX, polyY, n);
+                    } else {
+                        g.drawPolygon(polyX, polyY, n);
+                    }
+                    break;
+                }
+                case OP_TEXT: {
+                    int n = c[a + 3];
+                    if (chars.length < n) {
+                        chars = new char[n];
+                    }
+                    for (int i = 0; i < n; i++) {
+                        chars[i] = (char) c[a + 4 + i];
+                    }
+                    g.drawChars(chars, 0, n, c[a], c[a + 1], c[a + 2]);
+                    break;
+                }
+                case OP_IMAGE:
+                    replayTransform.setTransform(Float.intBitsToFloat(c[a + 1]), Float.intBitsToFloat(c[a + 4]),
+                            Float.intBitsToFloat(c[a + 2]), Float.intBitsToFloat(c[a + 5]),
+                            Float.intBitsToFloat(c[a + 3]), Float.intBitsToFloat(c[a + 6]));
+                    g.drawImage((Image) refs[c[a]], replayTransform, null);
+                    break;
+                case OP_IMAGE_RECT:
+                    g.drawImage((Image) refs[c[a]], c[a + 1], c[a + 2], c[a + 3], c[a + 4], c[a + 5], c[a + 6], c[a + 7], c[a + 8], null);
+                    break;
+                case OP_COPY_AREA:
+                    g.copyArea(c[a], c[a + 1], c[a + 2], c[a + 3], c[a + 4] - c[a], c[a + 5] - c[a + 1]);
+                    break;
+                case OP_REGION:
+                    g.drawRegion((Image) refs[c[a]], c[a + 1], c[a + 2], c[a + 3], c[a + 4], c[a + 5], c[a + 6], c[a + 7], c[a + 8]);
+                    break;
+            }
+        }
+        if (px2 > px1) {
+            g.fillRect(px1, py1, px2 - px1, py2 - py1);
+        }
+        culledCount = culled;
+        mergedCount = merged;
+    }
+
+    /**
+     * drawing commands recorded since last reset
+     *
+     * @return
+     */
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * commands culled by the clip in last replay
+     *
+     * @return
+     */
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * fills merged into others in last replay
+     *
+     * @return
+     */
+    public int getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * copy of the command buffer , images and fonts appear as the index of their first use
+     *
+     * @return
+     */
+    public int[] getCommands() {
+        int[] copy = new int[size];
+        System.arraycopy(cmds, 0, copy, 0, size);
+        return copy;
+    }
+
+    //------------------------------------------------------------------
+    // record
+    //------------------------------------------------------------------
+
+    /**
+     * start a command , the state changed is recorded before a drawing command
+     *
+     * @param op
+     * @param len ints after header
+     * @return position of first int after header
+     */
+    private int begin(int op, int len) {
+        if (op >= OP_FILL_RECT) {
+            commandCount++;
+            if (curColor != recColor) {
+                recColor = curColor;
+                int p = begin(OP_COLOR, 1);
+                cmds[p] = curColor;
+            }
+            if (clipX != recClipX || clipY != recClipY || clipW != recClipW || clipH != recClipH) {
+                recClipX = clipX;
+                recClipY = clipY;
+                recClipW = clipW;
+                recClipH = clipH;
+                int p = begin(OP_CLIP, 4);
+                cmds[p] = clipX;
+                cmds[p + 1] = clipY;
+                cmds[p + 2] = clipW;
+                cmds[p + 3] = clipH;
+            }
+            if (complexTransform ? !recTransform.equals(transform) : !recTransform.isIdentity()) {
+                if (complexTransform) {
+                    recTransform.setTransform(transform);
+                } else {
+                    recTransform.setToIdentity();
+                }
+                int p = begin(OP_TRANSFORM, 6);
+                cmds[p] = Float.floatToRawIntBits((float) recTransform.getScaleX());
+                cmds[p + 1] = Float.floatToRawIntBits((float) recTransform.getShearX());
+                cmds[p + 2] = Float.floatToRawIntBits((float) recTransform.getTranslateX());
+                cmds[p + 3] = Float.floatToRawIntBits((float) recTransform.getShearY());
+                cmds[p + 4] = Float.floatToRawIntBits((float) recTransform.getScaleY());
+                cmds[p + 5] = Float.floatToRawIntBits((float) recTransform.getTranslateY());
+            }
+        }
+        if (size + len + 1 > cmds.length) {
+            int[] n = new int[Math.max(cmds.length * 2, size + len + 1)];
+            System.arraycopy(cmds, 0, n, 0, size);
+            cmds = n;
+        }
+        int p = size;
+        cmds[p] = ((len + 1) << 8) | op;
+        size += len + 1;
+        return p + 1;
+    }
+
+    /**
+     * start a drawing command with its bounds
+     *
+     * @return position of the arguments
+     */
+    private int begin(int op, int args, int x1, int y1, int x2, int y2) {
+        int p = begin(op, args + 4);
+        cmds[p] = x1;
+        cmds[p + 1] = y1;
+        cmds[p + 2] = x2;
+        cmds[p + 3] = y2;
+        return p + 4;
+    }
+
+    /**
+     * start a drawing command with its bounds in user space , transformed under a complex transform
+     */
+    private int beginShape(int op, int args, int x1, int y1, int x2, int y2) {
+        if (complexTransform) {
+            int[] b = deviceBounds(x1, y1, x2 - x1, y2 - y1, bounds);
+            return begin(op, args, b[0], b[1], b[0] + b[2] + 1, b[1] + b[3] + 1);
+        }
+        return begin(op, args, x1, y1, x2, y2);
+    }
+
+    /**
+     * start a drawing command placed at a transformed point but not rotated or scaled, not culled under a complex transform
+     */
+    private int beginPlaced(int op, int args, int x1, int y1, int x2, int y2) {
+        if (complexTransform) {
+            return begin(op, args, 0, 0, imgW, imgH);
+        }
+        return begin(op, args, x1, y1, x2, y2);
+    }
+
+    private int ref(Object o) {
+        for (int i = refCount - 1; i >= 0; i--) {
+            if (refs[i] == o) return i;
+        }
+        if (refCount == refs.length) {
+            Object[] n = new Object[refs.length * 2];
+            System.arraycopy(refs, 0, n, 0, refCount);
+            refs = n;
+        }
+        refs[refCount] = o;
+        return refCount++;
+    }
+
+    public void setColor(Color color) {
+        if (color == null) return;
+        awtColor = color;
+        curColor = color.getRGB();
+    }
+
+    /**
+     * a new display list of the same image with the state of this one , its commands flushed on their own
+     */
+    public Graphics create() {
+        DisplayListGraphics g = new DisplayListGraphics(bimg);
+        copyStateTo(g);
+        g.curColor = curColor;
+        return g;
+    }
+
+    /**
+     * coordinates are recorded in user space under a complex transform
+     */
+    protected void transformChanged() {
+        super.transformChanged();
+        if (complexTransform) {
+            transX = transY = 0;
+        }
+    }
+
+    public void setClip(int x, int y, int w, int h) {
+        if ((w <= 0) || (h <= 0)) {
+            clipX = clipY = clipW = clipH = 0;
+            return;
+        }
+        int x1 = x + transX;
+        int y1 = y + transY;
+        if (complexTransform) {
+            int[] b = deviceBounds(x, y, w, h, bounds);
+            x1 = b[0];
+            y1 = b[1];
+            w = b[2];
+            h = b[3];
+        }
+        int x2 = x1 + w;
+        int y2 = y1 + h;
+
+        if (x1 < 0) x1 = 0;
+        if (y1 < 0) y1 = 0;
+        if (x1 > imgW) x1 = imgW;
+        if (y1 > imgH) y1 = imgH;
+        if (x2 < 0) x2 = 0;
+        if (y2 < 0) y2 = 0;
+        if (x2 > imgW) x2 = imgW;
+        if (y2 > imgH) y2 = imgH;
+
+        clipX = x1;
+        clipY = y1;
+        clipW = x2 - x1;
+        clipH = y2 - y1;
+    }
+
+    public void clipRect(int x, int y, int w, int h) {
+        if (complexTransform) {
+            super.clipRect(x, y, w, h);
+            return;
+        }
+        int x1 = Math.max(x + transX, clipX);
+        int y1 = Math.max(y + transY, clipY);
+        int x2 = Math.min(x + transX + w, clipX + clipW);
+        int y2 = Math.min(y + transY + h, clipY + clipH);
+        setClip(x1 - transX, y1 - transY, x2 - x1, y2 - y1);
+    }
+
+    public void fillRect(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        if (complexTransform) {
+            rectPolygon(x, y, w, h, true);
+            return;
+        }
+        x += transX;
+        y += transY;
+        begin(OP_FILL_RECT, 0, x, y, x + w, y + h);
+    }
+
+    /**
+     * a rectangle under a complex transform is a polygon of its corners
+     */
+    private void rectPolygon(int x, int y, int w, int h, boolean fill) {
+        polyX[0] = x;
+        polyY[0] = y;
+        polyX[1] = x + w;
+        polyY[1] = y;
+        polyX[2] = x + w;
+        polyY[2] = y + h;
+        polyX[3] = x;
+        polyY[3] = y + h;
+        polygon(polyX, polyY, 4, fill);
+    }
+
+    public void clearRect(int x, int y, int w, int h) {
+        int c = curColor;
+        curColor = backgroundColor == null ? 0xff000000 : backgroundColor.getRGB();
+        fillRect(x, y, w, h);
+        curColor = c;
+    }
+
+    public void drawRect(int x, int y, int w, int h) {
+        if (w < 0 || h < 0) {
+            return;
+        }
+        if (complexTransform) {
+            rectPolygon(x, y, w, h, false);
+            return;
+        }
+        fillRect(x, y, w + 1, 1);
+        if (h > 0) {
+            fillRect(x, y + h, w + 1, 1);
+        }
+        if (h > 1) {
+            fillRect(x, y + 1, 1, h - 1);
+            if (w > 0) {
+                fillRect(x + w, y + 1, 1, h - 1);
+            }
+        }
+    }
+
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        x1 += transX;
+        y1 += transY;
+        x2 += transX;
+        y2 += transY;
+        int a = beginShape(OP_LINE, 4, Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2) + 1, Math.max(y1, y2) + 1);
+        cmds[a] = x1;
+        cmds[a + 1] = y1;
+        cmds[a + 2] = x2;
+        cmds[a + 3] = y2;
+    }
+
+    public void fillRoundRect(int x, int y, int w, int h, int arcWidth, int arcHeight) {
+        roundRect(x, y, w, h, arcWidth, arcHeight, true);
+    }
+
+    public void drawRoundRect(int x, int y, int w, int h, int arcWidth, int arcHeight) {
+        roundRect(x, y, w, h, arcWidth, arcHeight, false);
+    }
+
+    private void roundRect(int x, int y, int w, int h, int arcWidth, int arcHeight, boolean fill) {
+        x += transX;
+        y += transY;
+        int a = beginShape(OP_ROUND_RECT, 7, x, y, x + w + 1, y + h + 1);
+        cmds[a] = x;
+        cmds[a + 1] = y;
+        cmds[a + 2] = w;
+        cmds[a + 3] = h;
+        cmds[a + 4] = arcWidth;
+        cmds[a + 5] = arcHeight;
+        cmds[a + 6] = fill ? 1 : 0;
+    }
+
+    public void fillArc(int x, int y, int w, int h, int startAngle, int arcAngle) {
+        arc(x, y, w, h, startAngle, arcAngle, true);
+    }
+
+    public void drawArc(int x, int y, int w, int h, int startAngle, int arcAngle) {
+        arc(x, y, w, h, startAngle, arcAngle, false);
+    }
+
+    private void arc(int x, int y, int w, int h, int startAngle, int arcAngle, boolean fill) {
+        x += transX;
+        y += transY;
+        int a = beginShape(OP_ARC, 7, x, y, x + w + 1, y + h + 1);
+        cmds[a] = x;
+        cmds[a + 1] = y;
+        cmds[a + 2] = w;
+        cmds[a + 3] = h;
+        cmds[a + 4] = startAngle;
+        cmds[a + 5] = arcAngle;
+        cmds[a + 6] = fill ? 1 : 0;
+    }
+
+    public void fillPolygon(int[] x, int[] y, int n) {
+        polygon(x, y, n, true);
+    }
+
+    public void drawPolygon(int[] x, int[] y, int n) {
+        polygon(x, y, n, false);
+    }
+
+    private void polygon(int[] x, int[] y, int n, boolean fill) {
+        if (x == null || y == null) {
+            return;
+        }
+        n = Math.min(n, Math.min(x.length, y.length));
+        if (n <= 0) {
+            return;
+        }
+        int x1 = Integer.MAX_VALUE, y1 = Integer.MAX_VALUE, x2 = Integer.MIN_VALUE, y2 = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            x1 = Math.min(x1, x[i]);
+            x2 = Math.max(x2, x[i]);
+            y1 = Math.min(y1, y[i]);
+            y2 = Math.max(y2, y[i]);
+        }
+        int a = beginShape(OP_POLYGON, 2 + n * 2, x1 + transX, y1 + transY, x2 + transX + 1, y2 + transY + 1);
+        cmds[a] = fill ? 1 : 0;
+        cmds[a + 1] = n;
+        for (int i = 0; i < n; i++) {
+            cmds[a + 2 + i] = x[i] + transX;
+            cmds[a + 2 + n + i] = y[i] + transY;
+        }
+    }
+
+    public void drawString(String str, int x, int y) {
+        if (str == null) return;
+        int len = str.length();
+        int a = text(x, y, GGraphics.BASELINE | GGraphics.LEFT, len, font.getBitmapfont().stringWidth(str));
+        for (int i = 0; i < len; i++) {
+            cmds[a + i] = str.charAt(i);
+        }
+    }
+
+    public void drawChars(char[] data, int offset, int length, int x, int y) {
+        drawChars(data, offset, length, x, y, GGraphics.BASELINE | GGraphics.LEFT);
+    }
+
+    public void drawChars(char[] data, int offset, int length, int x, int y, int anchor) {
+        if (data == null) return;
+        if (offset < 0) offset = 0;
+        int end = Math.min(offset + length, data.length);
+        if (end <= offset) return;
+        int a = text(x, y, anchor, end - offset, font.getBitmapfont().charsWidth(data, offset, end - offset));
+        for (int i = offset; i < end; i++) {
+            cmds[a++] = data[i];
+        }
+    }
+
+    /**
+     * text command , the bounds cover all anchors
+     *
+     * @return position of the chars
+     */
+    private int text(int x, int y, int anchor, int len, int w) {
+        if (font != recFont) {
+            recFont = font;
+            int p = begin(OP_FONT, 1);
+            cmds[p] = ref(font);
+        }
+        x += transX;
+        y += transY;
+        int h = font.getBitmapfont().getHeight();
+        int a = beginPlaced(OP_TEXT, 4 + len, x - w, y - h * 2, x + w + 1, y + h * 2);
+        cmds[a] = x;
+        cmds[a + 1] = y;
+        cmds[a + 2] = anchor;
+        cmds[a + 3] = len;
+        return a + 4;
+    }
+
+    public boolean drawImage(Image img, AffineTransform transform, ImageObserver observer) {
+        if (!(img instanceof BufferedImage)) {
+            return true;
+        }
+        float m00 = (float) transform.getScaleX(), m01 = (float) transform.getShearX();
+        float m02 = (float) transform.getTranslateX() + transX;
+        float m10 = (float) transform.getShearY(), m11 = (float) transform.getScaleY();
+        float m12 = (float) transform.getTranslateY() + transY;
+        int w = img.getWidth(null), h = img.getHeight(null);
+        float minX = m02, maxX = m02, minY = m12, maxY = m12;
+        for (int i = 1; i < 4; i++) {
+            int sx = (i & 1) != 0 ? w : 0;
+            int sy = (i & 2) != 0 ? h : 0;
+            float dx = m00 * sx + m01 * sy + m02;
+            float dy = m10 * sx + m11 * sy + m12;
+            minX = Math.min(minX, dx);
+            maxX = Math.max(maxX, dx);
+            minY = Math.min(minY, dy);
+            maxY = Math.max(maxY, dy);
+        }
+        int a = beginShape(OP_IMAGE, 7, (int) Math.floor(minX), (int) Math.floor(minY), (int) Math.ceil(maxX) + 1, (int) Math.ceil(maxY) + 1);
+        cmds[a] = ref(img);
+        cmds[a + 1] = Float.floatToRawIntBits(m00);
+        cmds[a + 2] = Float.floatToRawIntBits(m01);
+        cmds[a + 3] = Float.floatToRawIntBits(m02);
+        cmds[a + 4] = Float.floatToRawIntBits(m10);
+        cmds[a + 5] = Float.floatToRawIntBits(m11);
+        cmds[a + 6] = Float.floatToRawIntBits(m12);
+        return true;
+    }
+
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        AffineTransform af = BufferedImageGraphics.transform.get();
+        af.setToIdentity();
+        af.translate(x, y);
+        return drawImage(img, af, observer);
+    }
+
+    /**
+     * recorded as the whole source rectangle, the sizes stay integer
+     */
+    public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+        if (!(img instanceof BufferedImage) || width <= 0 || height <= 0) {
+            return true;
+        }
+        return drawImage(img, x, y, x + width, y + height, 0, 0, img.getWidth(null), img.getHeight(null), observer);
+    }
+
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+                             int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+        if (!(img instanceof BufferedImage)) {
+            return true;
+        }
+        dx1 += transX;
+        dy1 += transY;
+        dx2 += transX;
+        dy2 += transY;
+        int a = beginShape(OP_IMAGE_RECT, 9, Math.min(dx1, dx2), Math.min(dy1, dy2), Math.max(dx1, dx2), Math.max(dy1, dy2));
+        cmds[a] = ref(img);
+        cmds[a + 1] = dx1;
+        cmds[a + 2] = dy1;
+        cmds[a + 3] = dx2;
+        cmds[a + 4] = dy2;
+        cmds[a + 5] = sx1;
+        cmds[a + 6] = sy1;
+        cmds[a + 7] = sx2;
+        cmds[a + 8] = sy2;
+        return true;
+    }
+
+    /**
+     * J2ME drawRegion , the bounds cover all anchors and transforms
+     */
+    public void drawRegion(Image src, int x_src, int y_src, int width, int height, int transform, int x_dest, int y_dest, int anchor) {
+        if (src == null) {
+            return;
+        }
+        x_dest += transX;
+        y_dest += transY;
+        int m = Math.max(Math.abs(width), Math.abs(height));
+        int a = beginPlaced(OP_REGION, 9, x_dest - m, y_dest - m, x_dest + m + 1, y_dest + m + 1);
+        cmds[a] = ref(src);
+        cmds[a + 1] = x_src;
+        cmds[a + 2] = y_src;
+        cmds[a + 3] = width;
+        cmds[a + 4] = height;
+        cmds[a + 5] = transform;
+        cmds[a + 6] = x_dest;
+        cmds[a + 7] = y_dest;
+        cmds[a + 8] = anchor;
+    }
+
+    public void copyArea(int x_src, int y_src, int width, int height, int x_dest, int y_dest, int anchor) {
+        if ((anchor & GGraphics.RIGHT) != 0) {
+            x_dest -= width;
+        } else if ((anchor & GGraphics.HCENTER) != 0) {
+            x_dest -= width / 2;
+        }
+        if ((anchor & GGraphics.BOTTOM) != 0) {
+            y_dest -= height;
+        } else if ((anchor & GGraphics.VCENTER) != 0) {
+            y_dest -= height / 2;
+        }
+        copyArea(x_src, y_src, width, height, x_dest - x_src, y_dest - y_src);
+    }
+
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        x += transX;
+        y += transY;
+        int a = beginPlaced(OP_COPY_AREA, 6, x + dx, y + dy, x + dx + width, y + dy + height);
+        cmds[a] = x;
+        cmds[a + 1] = y;
+        cmds[a + 2] = width;
+        cmds[a + 3] = height;
+        cmds[a + 4] = x + dx;
+        cmds[a + 5] = y + dy;
+    }
+}
@@ -0,0 +1,72 @@
+package java.awt.image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * R,G,B,A bytes of compact images which are blit but never drawn into, such as tile sheets
+ * <p>
+ * an image keeps its expanded bytes while the total fits the budget, the least recently read dropped first.
+ * a dropped array is not reused, a blit still reading it is not disturbed
+ * <p>
+ * budget -Dawt.image.expand=KB , 0 expands on every read
+ */
+class ExpandCache {
+    static int maxBytes = 4 * 1024 * 1024;
+
+    static {
+        String s = System.getProperty("awt.image.expand");
+        if (s != null) {
+            try {
+                maxBytes = Integer.parseInt(s) * 1024;
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    //access ordered, eldest is least recently read
+    static final LinkedHashMap<BufferedImage, byte[]> expanded = new LinkedHashMap<>(16, 0.75f, true);
+    static int bytes;
+
+    private ExpandCache() {
+    }
+
+    /**
+     * @param img
+     * @return null if not cached
+     */
+    static synchronized byte[] get(BufferedImage img) {
+        return expanded.get(img);
+    }
+
+    static synchronized void put(BufferedImage img, byte[] buf) {
+        if (buf.length > maxBytes) {
+            return;
+        }
+        byte[] old = expanded.put(img, buf);
+        if (old != null) {
+            bytes -= old.length;
+        }
+        bytes += buf.length;
+        for (Iterator<Map.Entry<BufferedImage, byte[]>> it = expanded.entrySet().iterator(); bytes > maxBytes && it.hasNext(); ) {
+            Map.Entry<BufferedImage, byte[]> e = it.next();
+            if (e.getKey() != img) {
+                bytes -= e.getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * the compact pixels of img changed or released
+     *
+     * @param img
+     */
+    static synchronized void remove(BufferedImage img) {
+        byte[] old = expanded.remove(img);
+        if (old != null) {
+            bytes -= old.length;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package java.awt.image;
+
+import org.mini.gui.GImage;
+import org.mini.gui.ImageMutable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * pool of pixel buffers, the old image of a resized Canvas returns its buffers here by recycle(),
+ * new BufferedImage of the same size reuse them , the pool only serves these canvas resizes,
+ * other images keep their buffers until they are collected
+ * <p>
+ * ImageMutable bucketed by width and height, int[] bucketed by length
+ * the buffers taken from pool are cleared
+ */
+public class ImagePool {
+    static final int MAX_PER_BUCKET = 4;
+
+    //max bytes kept in pool , -Dawt.image.pool=KB
+    static int maxRetainedBytes = 4 * 1024 * 1024;
+
+    static {
+        String s = System.getProperty("awt.image.pool");
+        if (s != null) {
+            try {
+                maxRetainedBytes = Integer.parseInt(s) * 1024;
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    static final HashMap<Long, ArrayList<ImageMutable>> images = new HashMap<>();
+    static final HashMap<Integer, ArrayList<int[]>> ints = new HashMap<>();
+
+    static int hits, misses, retainedBytes;
+
+    private ImagePool() {
+    }
+
+    /**
+     * ImageMutable of the size , reused one if there is , all pixels cleared
+     *
+     * @param w
+     * @param h
+     * @return
+     */
+    static ImageMutable acquire(int w, int h) {
+        synchronized (images) {
+            ArrayList<ImageMutable> bucket = images.get(imageKey(w, h));
+            if (bucket != null && !bucket.isEmpty()) {
+                ImageMutable m = bucket.remove(bucket.size() - 1);
+                retainedBytes -= w * h * BufferedImage.BYTE_PER_PIXEL;
+                hits++;
+                Arrays.fill(m.getData().array(), (byte) 0);
+                return m;
+            }
+            misses++;
+        }
+        return GImage.createImageMutable(w, h);
+    }
+
+    static void release(ImageMutable m) {
+        int w = m.getWidth();
+        int h = m.getHeight();
+        int size = w * h * BufferedImage.BYTE_PER_PIXEL;
+        synchronized (images) {
+            if (retainedBytes + size > maxRetainedBytes) {
+                return;
+            }
+            Long key = imageKey(w, h);
+            ArrayList<ImageMutable> bucket = images.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                images.put(key, bucket);
+            }
+            if (bucket.size() < MAX_PER_BUCKET) {
+                bucket.add(m);
+                retainedBytes += size;
+            }
+        }
+    }
+
+    /**
+     * int[] of the length , reused one if there is , all cleared
+     *
+     * @param len
+     * @return
+     */
+    static int[] acquireInts(int len) {
+        synchronized (images) {
+            ArrayList<int[]> bucket = ints.get(len);
+            if (bucket != null && !bucket.isEmpty()) {
+                int[] arr = bucket.remove(bucket.size() - 1);
+                retainedBytes -= len * 4;
+                hits++;
+                Arrays.fill(arr, 0);
+                return arr;
+            }
+            misses++;
+        }
+        return new int[len];
+    }
+
+    static void releaseInts(int[] arr) {
+        int size = arr.length * 4;
+        synchronized (images) {
+            if (retainedBytes + size > maxRetainedBytes) {
+                return;
+            }
+            ArrayList<int[]> bucket = ints.get(arr.length);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                ints.put(arr.length, bucket);
+            }
+            if (bucket.size() < MAX_PER_BUCKET) {
+                bucket.add(arr);
+                retainedBytes += size;
+            }
+        }
+    }
+
+    /**
+     * internal, return the buffers of an image nothing reads or draws any more, the pixels are lost
+     * for the old image of a resized Canvas after its last present
+     *
+     * @param img
+     */
+    public static void recycle(BufferedImage img) {
+        img.dispose();
+    }
+
+    private static Long imageKey(int w, int h) {
+        return ((long) w << 32) | (h & 0xffffffffL);
+    }
+
+    public static int getHits() {
+        return hits;
+    }
+
+    public static int getMisses() {
+        return misses;
+    }
+
+    public static int getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public static void setMaxRetainedBytes(int bytes) {
+        synchronized (images) {
+            maxRetainedBytes = bytes;
+            if (retainedBytes > bytes) {
+                clear();
+            }
+        }
+    }
+
+    /**
+     * drop all pooled buffers
+     */
+    public static void clear() {
+        synchronized (images) {
+            images.clear();
+            ints.clear();
+            retainedBytes = 0;
+        }
+    }
+
+    public static String getReport() {
+        return "ImagePool hits:" + hits + " misses:" + misses + " retained:" + retainedBytes + "/" + maxRetainedBytes;
+    }
+}
@@ -0,0 +1,246 @@
+package java.awt.image;
+
+import java.io.PrintStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * registry of live BufferedImage , for sizing heap of a MIDlet and finding leaks
+ * <p>
+ * off by default, -Dawt.image.registry=true or setEnabled(true) before images created
+ * each image recorded with its origin ( the class created it ), size and pixel bytes,
+ * the live bytes kept as a running count , added when an image allocates pixel buffers and taken off when it
+ * releases them or is collected, the max kept as high water mark. so no peak is missed,
+ * and images are not walked on creation, loading N images is not O(N * N)
+ * <p>
+ * press F12 in emulator to dump
+ */
+public class ImageRegistry {
+    static boolean enabled = "true".equals(System.getProperty("awt.image.registry"));
+
+    static final ArrayList<Entry> images = new ArrayList<>();
+    static final ReferenceQueue<BufferedImage> collected = new ReferenceQueue<>();
+    static long liveBytes, highWaterBytes;
+    static int liveCount, totalCount;
+
+    /**
+     * an image and the pixel bytes counted for it , the bytes are taken off live bytes when it's collected
+     */
+    static final class Entry extends WeakReference<BufferedImage> {
+        long bytes;
+
+        Entry(BufferedImage img) {
+            super(img, collected);
+        }
+    }
+
+    private ImageRegistry() {
+    }
+
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void register(BufferedImage img) {
+        img.origin = findOrigin();
+        img.createTime = img.lastDrawTime = System.currentTimeMillis();
+        Entry e = new Entry(img);
+        img.registryEntry = e;
+        synchronized (images) {
+            images.add(e);
+            totalCount++;
+            liveCount++;
+        }
+        resized(img);
+    }
+
+    /**
+     * pixel buffers of the image allocated or released , the live bytes and high water updated at once
+     *
+     * @param img
+     */
+    static void resized(BufferedImage img) {
+        Entry e = img.registryEntry;
+        if (e == null) {
+            //created before registry enabled
+            return;
+        }
+        long bytes = img.getPixelMemorySize();
+        synchronized (images) {
+            pollCollected();
+            liveBytes += bytes - e.bytes;
+            e.bytes = bytes;
+            if (liveBytes > highWaterBytes) {
+                highWaterBytes = liveBytes;
+            }
+        }
+    }
+
+    /**
+     * take the collected images off the live count , their entries removed from the list by the next walk
+     */
+    private static void pollCollected() {
+        Reference<? extends BufferedImage> r;
+        while ((r = collected.poll()) != null) {
+            Entry e = (Entry) r;
+            liveBytes -= e.bytes;
+            e.bytes = 0;
+            liveCount--;
+        }
+    }
+
+    /**
+     * image drawn or presented
+     *
+     * @param img
+     */
+    public static void touch(BufferedImage img) {
+        img.lastDrawTime = System.currentTimeMillis();
+    }
+
+    /**
+     * first caller out of java.awt.image
+     *
+     * @return
+     */
+    private static String findOrigin() {
+        try {
+            StackTraceElement[] trace = new Throwable().getStackTrace();
+            for (int i = 0; i < trace.length; i++) {
+                String cls = trace[i].getClassName();
+                if (!cls.startsWith("java.awt.image.")) {
+                    return cls + "." + trace[i].getMethodName();
+                }
+            }
+        } catch (Throwable t) {
+        }
+        return "unknown";
+    }
+
+    /**
+     * walk the live images to recount the running totals , drop the entries of collected ones
+     *
+     * @return live bytes
+     */
+    public static long sample() {
+        synchronized (images) {
+            pollCollected();
+            long bytes = 0;
+            int count = 0;
+            for (int i = images.size() - 1; i >= 0; i--) {
+                Entry e = images.get(i);
+                BufferedImage img = e.get();
+                if (img == null) {
+                    images.remove(i);
+                    continue;
+                }
+                e.bytes = img.getPixelMemorySize();
+                bytes += e.bytes;
+                count++;
+            }
+            liveBytes = bytes;
+            liveCount = count;
+            if (bytes > highWaterBytes) {
+                highWaterBytes = bytes;
+            }
+            return bytes;
+        }
+    }
+
+    public static long getLiveBytes() {
+        synchronized (images) {
+            pollCollected();
+            return liveBytes;
+        }
+    }
+
+    public static int getLiveCount() {
+        synchronized (images) {
+            pollCollected();
+            return liveCount;
+        }
+    }
+
+    public static long getHighWaterBytes() {
+        return highWaterBytes;
+    }
+
+    public static void resetHighWater() {
+        synchronized (images) {
+            pollCollected();
+            highWaterBytes = liveBytes;
+        }
+    }
+
+    /**
+     * live images which not drawn in the seconds
+     *
+     * @param seconds
+     * @return
+     */
+    public static ArrayList<BufferedImage> findIdle(int seconds) {
+        long before = System.currentTimeMillis() - seconds * 1000L;
+        ArrayList<BufferedImage> list = new ArrayList<>();
+        synchronized (images) {
+            for (int i = 0; i < images.size(); i++) {
+                BufferedImage img = images.get(i).get();
+                if (img != null && img.lastDrawTime < before && img.getPixelMemorySize() > 0) {
+                    list.add(img);
+                }
+            }
+        }
+        return list;
+    }
+
+    public static String getReport() {
+        sample();
+        return "ImageRegistry live:" + liveCount + " bytes:" + liveBytes + " highWater:" + highWaterBytes + " created:" + totalCount;
+    }
+
+    /**
+     * print live bytes by origin , and the images not drawn in idleSeconds
+     *
+     * @param out
+     * @param idleSeconds
+     */
+    public static void dump(PrintStream out, int idleSeconds) {
+        out.println(getReport());
+        out.println(ImagePool.getReport());
+        HashMap<String, long[]> byOrigin = new HashMap<>();
+        synchronized (images) {
+            for (int i = 0; i < images.size(); i++) {
+                BufferedImage img = images.get(i).get();
+                if (img == null) continue;
+                String key = img.parent != null ? img.origin + " (view)" : img.origin;
+                long[] v = byOrigin.get(key);
+                if (v == null) {
+                    v = new long[2];
+                    byOrigin.put(key, v);
+                }
+                v[0]++;
+                v[1] += img.getPixelMemorySize();
+            }
+        }
+        for (String key : byOrigin.keySet()) {
+            long[] v = byOrigin.get(key);
+            out.println("  " + key + " count:" + v[0] + " bytes:" + v[1]);
+        }
+        long now = System.currentTimeMillis();
+        ArrayList<BufferedImage> idle = findIdle(idleSeconds);
+        if (!idle.isEmpty()) {
+            out.println("not drawn in " + idleSeconds + "s:");
+            for (int i = 0; i < idle.size(); i++) {
+                BufferedImage img = idle.get(i);
+                out.println("  " + img.getWidth() + "x" + img.getHeight() + " type:" + img.getType()
+                        + " bytes:" + img.getPixelMemorySize() + " idle:" + (now - img.lastDrawTime) / 1000 + "s " + img.origin);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package java.awt.image;
+
+import java.util.Arrays;
+
+/**
+ * pure java raster backend, same result as GLMath img_fill/img_draw
+ * <p>
+ * img_draw walks the clip in dst , maps each pixel center back to src by the inverse transform
+ * in 16.16 fixed point, so a row costs two adds per pixel
+ */
+class JavaRasterBackend implements RasterBackend {
+
+    @Override
+    public void fill(byte[] canvas, int pixelOffset, int len, int argb) {
+        if (len <= 0) {
+            return;
+        }
+        int d = pixelOffset * BufferedImage.BYTE_PER_PIXEL;
+        canvas[d] = (byte) (argb >> 16);
+        canvas[d + 1] = (byte) (argb >> 8);
+        canvas[d + 2] = (byte) argb;
+        canvas[d + 3] = (byte) (argb >>> 24);
+        //double the filled part each copy
+        int filled = BufferedImage.BYTE_PER_PIXEL;
+        int total = len * BufferedImage.BYTE_PER_PIXEL;
+        while (filled < total) {
+            int n = filled < total - filled ? filled : total - filled;
+            System.arraycopy(canvas, d, canvas, d + filled, n);
+            filled += n;
+        }
+    }
+
+    @Override
+    public void fillRect(byte[] canvas, int stride, int x, int y, int w, int h, int argb) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        if (w == stride) {
+            fill(canvas, y * stride, w * h, argb);
+            return;
+        }
+        fill(canvas, y * stride + x, w, argb);
+        copyRowDown(canvas, stride, x, y, w, h);
+    }
+
+    /**
+     * copy row y to the h - 1 rows below it
+     */
+    static void copyRowDown(byte[] canvas, int stride, int x, int y, int w, int h) {
+        int src = (y * stride + x) * BufferedImage.BYTE_PER_PIXEL;
+        int len = w * BufferedImage.BYTE_PER_PIXEL;
+        int rowBytes = stride * BufferedImage.BYTE_PER_PIXEL;
+        for (int j = 1, d = src + rowBytes; j < h; j++, d += rowBytes) {
+            System.arraycopy(canvas, src, canvas, d, len);
+        }
+    }
+
+    @Override
+    public void clear(byte[] canvas, int argb) {
+        if (argb == 0) {
+            Arrays.fill(canvas, (byte) 0);
+        } else {
+            fill(canvas, 0, canvas.length / BufferedImage.BYTE_PER_PIXEL, argb);
+        }
+    }
+
+    @Override
+    public void draw(byte[] dst, int dstW, byte[] src, int srcW,
+                     int clipX, int clipY, int clipW, int clipH,
+                     float m00, float m01, float m02, float m10, float m11, float m12,
+                     float alpha, boolean bitmapFont, int fontRGB) {
+        draw(dst, dstW, src, srcW, clipX, clipY, clipW, clipH, m00, m01, m02, m10, m11, m12, alpha, bitmapFont, fontRGB, false);
+    }
+
+    /**
+     * premultiplied source blended as it is , no straight copy
+     */
+    @Override
+    public void drawPremultiplied(byte[] dst, int dstW, byte[] src, int srcW,
+                                  int clipX, int clipY, int clipW, int clipH,
+                                  float m00, float m01, float m02, float m10, float m11, float m12,
+                                  float alpha) {
+        draw(dst, dstW, src, srcW, clipX, clipY, clipW, clipH, m00, m01, m02, m10, m11, m12, alpha, false, 0, true);
+    }
+
+    private void draw(byte[] dst, int dstW, byte[] src, int srcW,
+                      int clipX, int clipY, int clipW, int clipH,
+                      float m00, float m01, float m02, float m10, float m11, float m12,
+                      float alpha, boolean bitmapFont, int fontRGB, boolean premultiplied) {
+        int dstH = dst.length / BufferedImage.BYTE_PER_PIXEL / dstW;
+        int srcH = src.length / BufferedImage.BYTE_PER_PIXEL / srcW;
+        int x1 = clipX < 0 ? 0 : clipX;
+        int y1 = clipY < 0 ? 0 : clipY;
+        int x2 = clipX + clipW > dstW ? dstW : clipX + clipW;
+        int y2 = clipY + clipH > dstH ? dstH : clipY + clipH;
+        float det = m00 * m11 - m01 * m10;
+        if (x2 <= x1 || y2 <= y1 || det == 0f || alpha <= 0f) {
+            return;
+        }
+        //inverse transform
+        float i00 = m11 / det, i01 = -m01 / det;
+        float i10 = -m10 / det, i11 = m00 / det;
+        long stepX = (long) (i00 * 65536f), stepY = (long) (i10 * 65536f);
+        int ga = alpha >= 1f ? 255 : (int) (alpha * 255f);
+        int fr = (fontRGB >> 16) & 0xff, fg = (fontRGB >> 8) & 0xff, fb = fontRGB & 0xff;
+        int fontRB = fontRGB & 0x00ff00ff, fontG1 = fg << 16 | 0xff;
+        long srcWFixed = (long) srcW << 16, srcHFixed = (long) srcH << 16;
+
+        for (int y = y1; y < y2; y++) {
+            float px = x1 + 0.5f - m02;
+            float py = y + 0.5f - m12;
+            long sxf = (long) Math.floor((i00 * px + i01 * py) * 65536f);
+            long syf = (long) Math.floor((i10 * px + i11 * py) * 65536f);
+            int d = (y * dstW + x1) * BufferedImage.BYTE_PER_PIXEL;
+            for (int x = x1; x < x2; x++, d += 4, sxf += stepX, syf += stepY) {
+                if (sxf < 0 || syf < 0 || sxf >= srcWFixed || syf >= srcHFixed) {
+                    continue;
+                }
+                int s = ((int) (syf >> 16) * srcW + (int) (sxf >> 16)) * BufferedImage.BYTE_PER_PIXEL;
+                if (premultiplied) {
+                    int rb = Compositor.rbLanes(src, s), gaLanes = Compositor.gaLanes(src, s);
+                    if (ga != 255) {
+                        rb = Compositor.mulLanes(rb, ga);
+                        gaLanes = Compositor.mulLanes(gaLanes, ga);
+                    }
+                    if ((gaLanes & 0xff) != 0) {
+                        Compositor.overPremultiplied(dst, d, rb, gaLanes);
+                    }
+                    continue;
+                }
+                int a = src[s + 3] & 0xff;
+                if (ga != 255) {
+                    a = ScanlineConverter.mul255(a, ga);
+                }
+                if (a == 0) {
+                    continue;
+                }
+                if (a == 255) {
+                    if (bitmapFont) {
+                        dst[d] = (byte) fr;
+                        dst[d + 1] = (byte) fg;
+                        dst[d + 2] = (byte) fb;
+                    } else {
+                        dst[d] = src[s];
+                        dst[d + 1] = src[s + 1];
+                        dst[d + 2] = src[s + 2];
+                    }
+                    dst[d + 3] = (byte) 0xff;
+                } else if (bitmapFont) {
+                    Compositor.over(dst, d, fontRB, fontG1, a);
+                } else {
+                    Compositor.over(dst, d, Compositor.rbLanes(src, s), (src[s + 1] & 0xff) << 16 | 0xff, a);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "java";
+    }
+}
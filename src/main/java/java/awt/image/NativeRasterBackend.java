@@ -0,0 +1,93 @@
+package java.awt.image;
+
+import org.mini.gl.GLMath;
+
+import java.util.Arrays;
+
+/**
+ * GLMath.img_fill and GLMath.img_draw of xgui
+ */
+class NativeRasterBackend implements RasterBackend {
+
+    @Override
+    public void fill(byte[] canvas, int pixelOffset, int len, int argb) {
+        GLMath.img_fill(canvas, pixelOffset, len, argb);
+    }
+
+    /**
+     * one native fill for the first row , other rows copied from it
+     */
+    @Override
+    public void fillRect(byte[] canvas, int stride, int x, int y, int w, int h, int argb) {
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        if (w == stride) {
+            GLMath.img_fill(canvas, y * stride, w * h, argb);
+            return;
+        }
+        GLMath.img_fill(canvas, y * stride + x, w, argb);
+        JavaRasterBackend.copyRowDown(canvas, stride, x, y, w, h);
+    }
+
+    @Override
+    public void clear(byte[] canvas, int argb) {
+        if (argb == 0) {
+            Arrays.fill(canvas, (byte) 0);
+        } else {
+            GLMath.img_fill(canvas, 0, canvas.length / BufferedImage.BYTE_PER_PIXEL, argb);
+        }
+    }
+
+    @Override
+    public void draw(byte[] dst, int dstW, byte[] src, int srcW,
+                     int clipX, int clipY, int clipW, int clipH,
+                     float m00, float m01, float m02, float m10, float m11, float m12,
+                     float alpha, boolean bitmapFont, int fontRGB) {
+        GLMath.img_draw(dst, dstW, src, srcW, clipX, clipY, clipW, clipH,
+                m00, m01, m02, m10, m11, m12, alpha, bitmapFont, fontRGB);
+    }
+
+    /**
+     * img_draw blends straight alpha only , the part of src sampled under the clip is un-premultiplied for it
+     */
+    @Override
+    public void drawPremultiplied(byte[] dst, int dstW, byte[] src, int srcW,
+                                  int clipX, int clipY, int clipW, int clipH,
+                                  float m00, float m01, float m02, float m10, float m11, float m12,
+                                  float alpha) {
+        float det = m00 * m11 - m01 * m10;
+        if (clipW <= 0 || clipH <= 0 || det == 0f || alpha <= 0f) {
+            return;
+        }
+        //source bounds of the clip corners, one more pixel each side for float error
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            float px = clipX + ((i & 1) == 0 ? 0 : clipW) - m02;
+            float py = clipY + ((i & 2) == 0 ? 0 : clipH) - m12;
+            float sx = (m11 * px - m01 * py) / det;
+            float sy = (m00 * py - m10 * px) / det;
+            minX = Math.min(minX, sx);
+            maxX = Math.max(maxX, sx);
+            minY = Math.min(minY, sy);
+            maxY = Math.max(maxY, sy);
+        }
+        int srcH = src.length / BufferedImage.BYTE_PER_PIXEL / srcW;
+        int x1 = Math.max((int) Math.floor(minX) - 1, 0);
+        int y1 = Math.max((int) Math.floor(minY) - 1, 0);
+        int x2 = Math.min((int) Math.ceil(maxX) + 1, srcW);
+        int y2 = Math.min((int) Math.ceil(maxY) + 1, srcH);
+        if (x2 <= x1 || y2 <= y1) {
+            return;
+        }
+        byte[] part = Compositor.toStraight(src, srcW, x1, y1, x2 - x1, y2 - y1);
+        //part 0,0 is src x1,y1
+        GLMath.img_draw(dst, dstW, part, x2 - x1, clipX, clipY, clipW, clipH,
+                m00, m01, m02 + m00 * x1 + m01 * y1, m10, m11, m12 + m10 * x1 + m11 * y1, alpha, false, 0);
+    }
+
+    @Override
+    public String getName() {
+        return "native";
+    }
+}
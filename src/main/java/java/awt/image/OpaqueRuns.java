@@ -0,0 +1,108 @@
+package java.awt.image;
+
+/**
+ * run length encoded opaque pixels of a BITMASK image, the pixels with alpha 0 are not visited when drawn
+ * <p>
+ * row y is (skip, run) pairs in runs[rowStart[y] .. rowStart[y + 1]) , skip counts from the end of the previous run,
+ * the first skip from column 0 of the image.
+ * encoded from the pixels its AlphaInfo was scanned from and kept in that AlphaInfo,
+ * so it's dropped with the AlphaInfo when the image written
+ * <p>
+ * -Dawt.image.rle=false blits BITMASK images by the alpha test of each pixel
+ */
+class OpaqueRuns {
+    static boolean enabled = !"false".equals(System.getProperty("awt.image.rle"));
+
+    final int[] rowStart;
+    final int[] runs;
+
+    private OpaqueRuns(int[] rowStart, int[] runs) {
+        this.rowStart = rowStart;
+        this.runs = runs;
+    }
+
+    /**
+     * @param src    bytes of pixel owner
+     * @param srcPos pixel index of image 0,0 in pixel owner
+     * @param stride pixels per row of pixel owner
+     * @param info   alpha of the image , only the spans are scanned
+     * @return
+     */
+    static OpaqueRuns encode(byte[] src, int srcPos, int stride, AlphaInfo info) {
+        int h = info.spanStart.length;
+        int[] rowStart = new int[h + 1];
+        int[] runs = new int[Math.max(h * 4, 16)];
+        int n = 0;
+        for (int y = 0; y < h; y++) {
+            rowStart[y] = n;
+            int rowPos = srcPos + y * stride;
+            int last = 0;
+            for (int x = info.spanStart[y], end = info.spanEnd[y]; x < end; ) {
+                if (src[((rowPos + x) << 2) + 3] == 0) {
+                    x++;
+                    continue;
+                }
+                int first = x;
+                do {
+                    x++;
+                } while (x < end && src[((rowPos + x) << 2) + 3] != 0);
+                if (n + 2 > runs.length) {
+                    int[] a = new int[runs.length * 2];
+                    System.arraycopy(runs, 0, a, 0, n);
+                    runs = a;
+                }
+                runs[n++] = first - last;
+                runs[n++] = x - first;
+                last = x;
+            }
+        }
+        rowStart[h] = n;
+        if (n < runs.length) {
+            int[] a = new int[n];
+            System.arraycopy(runs, 0, a, 0, n);
+            runs = a;
+        }
+        return new OpaqueRuns(rowStart, runs);
+    }
+
+    /**
+     * copy the opaque runs inside the clip
+     *
+     * @param src       bytes of pixel owner
+     * @param srcPos    pixel index of image 0,0 in pixel owner
+     * @param srcStride
+     * @param dst       canvas bytes
+     * @param dstStride
+     * @param dx        canvas position of image 0,0
+     * @param dy
+     * @param x1        clip in canvas , x2 y2 exclusive
+     * @param y1
+     * @param x2
+     * @param y2
+     */
+    void blit(byte[] src, int srcPos, int srcStride, byte[] dst, int dstStride,
+              int dx, int dy, int x1, int y1, int x2, int y2) {
+        int[] runs = this.runs;
+        int cx1 = x1 - dx, cx2 = x2 - dx;
+        int rowEnd = Math.min(y2 - dy, rowStart.length - 1);
+        for (int row = Math.max(y1 - dy, 0); row < rowEnd; row++) {
+            int s = srcPos + row * srcStride;
+            int d = (row + dy) * dstStride + dx;
+            int x = 0;
+            for (int i = rowStart[row], end = rowStart[row + 1]; i < end; i += 2) {
+                int rx1 = x + runs[i];
+                if (rx1 >= cx2) {
+                    break;
+                }
+                int rx2 = rx1 + runs[i + 1];
+                x = rx2;
+                if (rx2 <= cx1) {
+                    continue;
+                }
+                if (rx1 < cx1) rx1 = cx1;
+                if (rx2 > cx2) rx2 = cx2;
+                System.arraycopy(src, (s + rx1) << 2, dst, (d + rx1) << 2, (rx2 - rx1) << 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package java.awt.image;
+
+import java.util.Arrays;
+
+/**
+ * scanline polygon filler with active edge table, even-odd rule
+ * <p>
+ * a pixel is filled if its center is inside, edges step in 16.16 fixed point from one scanline to next
+ * the edge buffers belong to the thread and grow only, no allocation per call
+ * the points of caller are not changed
+ */
+class PolygonRasterizer {
+    static ThreadLocal<PolygonRasterizer> local = new ThreadLocal<PolygonRasterizer>() {
+        protected PolygonRasterizer initialValue() {
+            return new PolygonRasterizer();
+        }
+    };
+
+    //edge: scanlines top .. bottom - 1 , x at center of current scanline
+    int[] edgeTop = new int[16], edgeBottom = new int[16];
+    long[] edgeX = new long[16], edgeSlope = new long[16];
+    //top << 32 | edge index , sorted
+    long[] order = new long[16];
+    int edgeCount;
+    int[] active = new int[16];
+    long[] cross = new long[16];
+
+    //bounds of points, x2 y2 inclusive
+    int minX, minY, maxX, maxY;
+
+    static PolygonRasterizer get() {
+        return local.get();
+    }
+
+    /**
+     * build edge table of the closed polygon
+     *
+     * @param xs
+     * @param ys
+     * @param n  point count
+     * @param tx translate added to points
+     * @param ty
+     */
+    void build(int[] xs, int[] ys, int n, int tx, int ty) {
+        if (edgeTop.length < n) {
+            int len = Math.max(n, edgeTop.length * 2);
+            edgeTop = new int[len];
+            edgeBottom = new int[len];
+            edgeX = new long[len];
+            edgeSlope = new long[len];
+            order = new long[len];
+            active = new int[len];
+            cross = new long[len];
+        }
+        edgeCount = 0;
+        minX = minY = Integer.MAX_VALUE;
+        maxX = maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            int x1 = xs[i] + tx, y1 = ys[i] + ty;
+            int x2 = xs[j] + tx, y2 = ys[j] + ty;
+            if (x1 < minX) minX = x1;
+            if (x1 > maxX) maxX = x1;
+            if (y1 < minY) minY = y1;
+            if (y1 > maxY) maxY = y1;
+            if (y1 == y2) {
+                continue;
+            }
+            if (y1 > y2) {
+                int t = x1;
+                x1 = x2;
+                x2 = t;
+                t = y1;
+                y1 = y2;
+                y2 = t;
+            }
+            int k = edgeCount++;
+            //rounded down, so a crossing exactly on a pixel center stays on it
+            long dx = (long) (x2 - x1) << 16, dy = y2 - y1;
+            long slope = floorDiv(dx, dy);
+            edgeTop[k] = y1;
+            edgeBottom[k] = y2;
+            edgeX[k] = ((long) x1 << 16) + floorDiv(dx, dy * 2);
+            edgeSlope[k] = slope;
+            order[k] = ((long) y1 << 32) | k;
+        }
+        Arrays.sort(order, 0, edgeCount);
+    }
+
+    /**
+     * fill the polygon built
+     *
+     * @param canvas
+     * @param stride pixels per row
+     * @param cx1    clip, inclusive
+     * @param cy1
+     * @param cx2
+     * @param cy2
+     * @param argb
+     */
+    void fill(byte[] canvas, int stride, int cx1, int cy1, int cx2, int cy2, int argb) {
+        int y1 = Math.max(minY, cy1);
+        int y2 = Math.min(maxY - 1, cy2);
+        int next = 0, activeCount = 0;
+        RasterBackend backend = RasterBackends.current;
+        for (int y = y1; y <= y2; y++) {
+            while (next < edgeCount && (int) (order[next] >> 32) <= y) {
+                int k = (int) order[next++];
+                if (edgeBottom[k] > y) {
+                    if (edgeTop[k] < y) {
+                        edgeX[k] += edgeSlope[k] * (y - edgeTop[k]);
+                    }
+                    active[activeCount++] = k;
+                }
+            }
+            //drop finished edges, collect crossings, insertion sort as the order changes little per scanline
+            int nc = 0;
+            for (int a = 0; a < activeCount; a++) {
+                int k = active[a];
+                if (edgeBottom[k] <= y) {
+                    continue;
+                }
+                active[nc] = k;
+                long x = edgeX[k];
+                int p = nc++;
+                while (p > 0 && cross[p - 1] > x) {
+                    cross[p] = cross[p - 1];
+                    p--;
+                }
+                cross[p] = x;
+            }
+            activeCount = nc;
+            for (int p = 0; p + 1 < nc; p += 2) {
+                //first and last pixel whose center is between the crossings
+                int l = (int) ((cross[p] + 0x7fff) >> 16);
+                int r = (int) ((cross[p + 1] + 0x7fff) >> 16) - 1;
+                if (l < cx1) l = cx1;
+                if (r > cx2) r = cx2;
+                if (l <= r) {
+                    backend.fill(canvas, y * stride + l, r - l + 1, argb);
+                }
+            }
+            for (int a = 0; a < activeCount; a++) {
+                int k = active[a];
+                edgeX[k] += edgeSlope[k];
+            }
+        }
+    }
+
+    //b > 0
+    private static long floorDiv(long a, long b) {
+        return a >= 0 ? a / b : -((-a + b - 1) / b);
+    }
+}
@@ -0,0 +1,82 @@
+package java.awt.image;
+
+/**
+ * pixel operations on R,G,B,A bytes of BufferedImage, all primitives of BufferedImageGraphics end here
+ * <p>
+ * the native backend is GLMath of xgui , the java backend runs on any jvm
+ *
+ * @see RasterBackends
+ */
+public interface RasterBackend {
+
+    /**
+     * set len pixels from pixelOffset to argb
+     *
+     * @param canvas
+     * @param pixelOffset
+     * @param len
+     * @param argb
+     */
+    void fill(byte[] canvas, int pixelOffset, int len, int argb);
+
+    /**
+     * set a rectangle of pixels to argb in one call
+     *
+     * @param canvas
+     * @param stride pixels per row of canvas
+     * @param x
+     * @param y
+     * @param w
+     * @param h
+     * @param argb
+     */
+    void fillRect(byte[] canvas, int stride, int x, int y, int w, int h, int argb);
+
+    /**
+     * set all pixels to argb
+     *
+     * @param canvas
+     * @param argb
+     */
+    void clear(byte[] canvas, int argb);
+
+    /**
+     * draw src to dst by transform, straight alpha blend, nearest pixel
+     * the height of images are array length / 4 / width
+     *
+     * @param dst
+     * @param dstW
+     * @param src
+     * @param srcW
+     * @param clipX      clip in dst
+     * @param clipY
+     * @param clipW
+     * @param clipH
+     * @param m00        src to dst transform
+     * @param m01
+     * @param m02
+     * @param m10
+     * @param m11
+     * @param m12
+     * @param alpha      0.0 - 1.0 multiply to src alpha
+     * @param bitmapFont src alpha is the coverage of fontRGB
+     * @param fontRGB
+     */
+    void draw(byte[] dst, int dstW, byte[] src, int srcW,
+              int clipX, int clipY, int clipW, int clipH,
+              float m00, float m01, float m02, float m10, float m11, float m12,
+              float alpha, boolean bitmapFont, int fontRGB);
+
+    /**
+     * draw premultiplied src to dst by transform , same as draw() otherwise
+     * out = src * alpha + dst * (255 - srcA * alpha) / 255
+     *
+     * @param alpha 0.0 - 1.0 multiply to src
+     */
+    void drawPremultiplied(byte[] dst, int dstW, byte[] src, int srcW,
+                           int clipX, int clipY, int clipW, int clipH,
+                           float m00, float m01, float m02, float m10, float m11, float m12,
+                           float alpha);
+
+    String getName();
+}
@@ -0,0 +1,40 @@
+package java.awt.image;
+
+/**
+ * the raster backend used by BufferedImageGraphics
+ * <p>
+ * -Dawt.image.raster=java or native , default native ,
+ * java backend used when the native library not loaded
+ */
+public class RasterBackends {
+    public static final RasterBackend NATIVE = new NativeRasterBackend();
+    public static final RasterBackend JAVA = new JavaRasterBackend();
+
+    static RasterBackend current = select(System.getProperty("awt.image.raster"));
+
+    private RasterBackends() {
+    }
+
+    static RasterBackend select(String name) {
+        if ("java".equals(name)) {
+            return JAVA;
+        }
+        try {
+            NATIVE.fill(new byte[4], 0, 1, 0);
+            return NATIVE;
+        } catch (Throwable t) {
+            //UnsatisfiedLinkError on headless jvm
+            return JAVA;
+        }
+    }
+
+    public static RasterBackend get() {
+        return current;
+    }
+
+    public static void set(RasterBackend backend) {
+        if (backend != null) {
+            current = backend;
+        }
+    }
+}
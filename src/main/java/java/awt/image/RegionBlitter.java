@@ -0,0 +1,209 @@
+package java.awt.image;
+
+import org.mini.gui.GGraphics;
+
+/**
+ * blit a region of image with one of the eight J2ME sprite transforms, no scale
+ * <p>
+ * destination pixel u,v reads source pixel start + u * du + v * dv, so each transform is a start and two steps:
+ * du = +-1 walks a source row forward or backward, du = +-stride walks a source column for the rotations.
+ * the destination is always written row by row
+ */
+class RegionBlitter {
+    //how source pixels are put to destination
+    static final int MODE_OPAQUE = 0;//copy
+    static final int MODE_BITMASK = 1;//copy where alpha is not 0
+    static final int MODE_STRAIGHT = 2;//straight alpha over
+    static final int MODE_PREMULTIPLIED = 3;//premultiplied alpha over
+
+    private RegionBlitter() {
+    }
+
+    /**
+     * the rotations by 90 or 270 exchange width and height
+     *
+     * @param transform
+     * @return
+     */
+    static boolean isTransposed(int transform) {
+        return transform == GGraphics.TRANS_ROT90 || transform == GGraphics.TRANS_ROT270
+                || transform == GGraphics.TRANS_MIRROR_ROT90 || transform == GGraphics.TRANS_MIRROR_ROT270;
+    }
+
+    /**
+     * @param src       source bytes
+     * @param srcStride source pixels per row
+     * @param sx        region in source
+     * @param sy
+     * @param w
+     * @param h
+     * @param transform GGraphics.TRANS_*
+     * @param dst       canvas bytes
+     * @param dstStride
+     * @param dx        top left of transformed region in canvas
+     * @param dy
+     * @param x1        clipped area to draw in canvas , x2 y2 exclusive, inside the transformed region
+     * @param y1
+     * @param x2
+     * @param y2
+     * @param mode      MODE_*
+     */
+    static void blit(byte[] src, int srcStride, int sx, int sy, int w, int h, int transform,
+                     byte[] dst, int dstStride, int dx, int dy, int x1, int y1, int x2, int y2, int mode) {
+        int start, du, dv;
+        switch (transform) {
+            case GGraphics.TRANS_NONE:
+                start = sy * srcStride + sx;
+                du = 1;
+                dv = srcStride;
+                break;
+            case GGraphics.TRANS_MIRROR:
+                start = sy * srcStride + sx + w - 1;
+                du = -1;
+                dv = srcStride;
+                break;
+            case GGraphics.TRANS_ROT180:
+                start = (sy + h - 1) * srcStride + sx + w - 1;
+                du = -1;
+                dv = -srcStride;
+                break;
+            case GGraphics.TRANS_MIRROR_ROT180:
+                start = (sy + h - 1) * srcStride + sx;
+                du = 1;
+                dv = -srcStride;
+                break;
+            case GGraphics.TRANS_ROT90:
+                start = (sy + h - 1) * srcStride + sx;
+                du = -srcStride;
+                dv = 1;
+                break;
+            case GGraphics.TRANS_ROT270:
+                start = sy * srcStride + sx + w - 1;
+                du = srcStride;
+                dv = -1;
+                break;
+            case GGraphics.TRANS_MIRROR_ROT90:
+                start = (sy + h - 1) * srcStride + sx + w - 1;
+                du = -srcStride;
+                dv = -1;
+                break;
+            case GGraphics.TRANS_MIRROR_ROT270:
+                start = sy * srcStride + sx;
+                du = srcStride;
+                dv = 1;
+                break;
+            default:
+                throw new IllegalArgumentException("transform " + transform);
+        }
+        int n = x2 - x1;
+        for (int y = y1; y < y2; y++) {
+            int s = start + (x1 - dx) * du + (y - dy) * dv;
+            int d = y * dstStride + x1;
+            if (du == 1) {
+                copyRow(src, s, dst, d, n, mode);
+            } else if (du == -1) {
+                reversedRow(src, s, dst, d, n, mode);
+            } else {
+                columnWalk(src, s, du, dst, d, n, mode);
+            }
+        }
+    }
+
+    /**
+     * source row forward
+     */
+    private static void copyRow(byte[] src, int srcPos, byte[] dst, int dstPos, int n, int mode) {
+        int s = srcPos << 2, d = dstPos << 2;
+        int send = s + (n << 2);
+        switch (mode) {
+            case MODE_OPAQUE:
+                System.arraycopy(src, s, dst, d, n << 2);
+                return;
+            case MODE_BITMASK:
+                //runs of visible pixels in one copy
+                while (s < send) {
+                    if (src[s + 3] == 0) {
+                        s += 4;
+                        d += 4;
+                        continue;
+                    }
+                    int run = s;
+                    do {
+                        s += 4;
+                    } while (s < send && src[s + 3] != 0);
+                    System.arraycopy(src, run, dst, d, s - run);
+                    d += s - run;
+                }
+                return;
+            default:
+                for (; s < send; s += 4, d += 4) {
+                    int a = src[s + 3] & 0xff;
+                    if (a == 255) {
+                        dst[d] = src[s];
+                        dst[d + 1] = src[s + 1];
+                        dst[d + 2] = src[s + 2];
+                        dst[d + 3] = (byte) 0xff;
+                    } else if (a != 0) {
+                        Compositor.blendPixel(src, s, dst, d, a, mode == MODE_PREMULTIPLIED);
+                    }
+                }
+        }
+    }
+
+    /**
+     * source row backward, mirror
+     */
+    private static void reversedRow(byte[] src, int srcPos, byte[] dst, int dstPos, int n, int mode) {
+        int s = srcPos << 2, d = dstPos << 2;
+        int dend = d + (n << 2);
+        if (mode == MODE_OPAQUE) {
+            for (; d < dend; d += 4, s -= 4) {
+                dst[d] = src[s];
+                dst[d + 1] = src[s + 1];
+                dst[d + 2] = src[s + 2];
+                dst[d + 3] = src[s + 3];
+            }
+            return;
+        }
+        for (; d < dend; d += 4, s -= 4) {
+            int a = src[s + 3] & 0xff;
+            if (a == 255 || (a != 0 && mode == MODE_BITMASK)) {
+                dst[d] = src[s];
+                dst[d + 1] = src[s + 1];
+                dst[d + 2] = src[s + 2];
+                dst[d + 3] = (byte) a;
+            } else if (a != 0) {
+                Compositor.blendPixel(src, s, dst, d, a, mode == MODE_PREMULTIPLIED);
+            }
+        }
+    }
+
+    /**
+     * source column up or down, rotations
+     */
+    private static void columnWalk(byte[] src, int srcPos, int step, byte[] dst, int dstPos, int n, int mode) {
+        int s = srcPos << 2, d = dstPos << 2;
+        int ds = step << 2;
+        int dend = d + (n << 2);
+        if (mode == MODE_OPAQUE) {
+            for (; d < dend; d += 4, s += ds) {
+                dst[d] = src[s];
+                dst[d + 1] = src[s + 1];
+                dst[d + 2] = src[s + 2];
+                dst[d + 3] = src[s + 3];
+            }
+            return;
+        }
+        for (; d < dend; d += 4, s += ds) {
+            int a = src[s + 3] & 0xff;
+            if (a == 255 || (a != 0 && mode == MODE_BITMASK)) {
+                dst[d] = src[s];
+                dst[d + 1] = src[s + 1];
+                dst[d + 2] = src[s + 2];
+                dst[d + 3] = (byte) a;
+            } else if (a != 0) {
+                Compositor.blendPixel(src, s, dst, d, a, mode == MODE_PREMULTIPLIED);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package java.awt.image;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * corner profile of rounded rectangle, the inset of each row in the top corner rows
+ * <p>
+ * the corners are the quarters of an arcWidth x arcHeight ellipse, the profile of a size
+ * computed once and kept in a small LRU cache, UI draws the same few sizes every frame
+ */
+class RoundRectCorners {
+    static final int MAX_ENTRIES = 16;
+    //profile of square corners
+    static final int[] NONE = new int[0];
+
+    static final LinkedHashMap<Long, int[]> cache = new LinkedHashMap<Long, int[]>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private RoundRectCorners() {
+    }
+
+    /**
+     * inset of the top arcHeight / 2 rows , the bottom rows are the mirror
+     *
+     * @param arcWidth  1 .. width of rectangle
+     * @param arcHeight 1 .. height of rectangle
+     * @return
+     */
+    static int[] get(int arcWidth, int arcHeight) {
+        Long key = ((long) arcWidth << 32) | arcHeight;
+        synchronized (cache) {
+            int[] inset = cache.get(key);
+            if (inset == null) {
+                inset = new int[arcHeight / 2];
+                System.arraycopy(ArcGeometry.ellipseLeft(arcWidth, arcHeight), 0, inset, 0, inset.length);
+                cache.put(key, inset);
+            }
+            return inset;
+        }
+    }
+}
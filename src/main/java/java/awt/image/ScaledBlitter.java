@@ -0,0 +1,173 @@
+package java.awt.image;
+
+/**
+ * nearest neighbour scaled blit, no rotation
+ * <p>
+ * destination pixel i samples source pixel (2 * i + 1) * sw / (2 * dw), the center of destination pixel.
+ * the source column of each destination column is computed once per call into a table used by every row,
+ * a destination row sampling the same source row as the row above is copied from it when the source is opaque.
+ * integer scale by 2 or 3 replicates each source pixel without the table
+ * <p>
+ * the table belongs to the thread and grows only
+ */
+class ScaledBlitter {
+    static ThreadLocal<ScaledBlitter> local = new ThreadLocal<ScaledBlitter>() {
+        protected ScaledBlitter initialValue() {
+            return new ScaledBlitter();
+        }
+    };
+
+    //source column of destination column x1 + i , in pixel owner
+    int[] col = new int[64];
+    //destination columns mapped inside source, x2 exclusive
+    int x1, x2;
+    //each source column replicated 2 or 3 times, 0 for other scales
+    int factor;
+    int dx;
+
+    static ScaledBlitter get() {
+        return local.get();
+    }
+
+    /**
+     * source index of destination index i
+     */
+    static int nearest(int i, int sw, int dw) {
+        return (int) (((2L * i + 1) * sw) / (2L * dw));
+    }
+
+    /**
+     * build the column table, columns sampling out of source are trimmed
+     *
+     * @param sx     source region in image
+     * @param sw
+     * @param dx     destination region in canvas
+     * @param dw
+     * @param mirror source region read from right to left
+     * @param limit  image width, the valid source columns are 0 .. limit - 1
+     * @param offset position of image in pixel owner
+     * @param x1     clipped destination columns, x2 exclusive
+     * @param x2
+     * @return false when no column left
+     */
+    boolean columns(int sx, int sw, int dx, int dw, boolean mirror, int limit, int offset, int x1, int x2) {
+        int n = x2 - x1;
+        if (col.length < n) {
+            col = new int[Math.max(n, col.length * 2)];
+        }
+        int first = -1, last = -1;
+        for (int i = 0; i < n; i++) {
+            int base = nearest(x1 - dx + i, sw, dw);
+            int x = mirror ? sx + sw - 1 - base : sx + base;
+            if (x >= 0 && x < limit) {
+                if (first < 0) first = i;
+                last = i;
+            }
+            col[i] = x + offset;
+        }
+        if (first < 0) {
+            return false;
+        }
+        //the mapping is monotone, the valid columns are one run
+        if (first > 0) {
+            System.arraycopy(col, first, col, 0, last - first + 1);
+        }
+        this.x1 = x1 + first;
+        this.x2 = x1 + last + 1;
+        this.dx = dx;
+        factor = !mirror && (dw == sw * 2 || dw == sw * 3) ? dw / sw : 0;
+        return true;
+    }
+
+    /**
+     * blit rows y1 .. y2 - 1 with the columns built
+     *
+     * @param src       bytes of pixel owner
+     * @param srcStride
+     * @param sy        source region in image
+     * @param sh
+     * @param dy        destination region in canvas
+     * @param dh
+     * @param mirror    source region read from bottom to top
+     * @param limit     image height
+     * @param offset    position of image in pixel owner
+     * @param dst
+     * @param dstStride
+     * @param y1        clipped destination rows, y2 exclusive
+     * @param y2
+     * @param mode      RegionBlitter.MODE_*
+     */
+    void blit(byte[] src, int srcStride, int sy, int sh, int dy, int dh, boolean mirror, int limit, int offset,
+              byte[] dst, int dstStride, int y1, int y2, int mode) {
+        int n = x2 - x1;
+        int prevRow = -1, prevD = 0;
+        for (int y = y1; y < y2; y++) {
+            int base = nearest(y - dy, sh, dh);
+            int row = mirror ? sy + sh - 1 - base : sy + base;
+            if (row < 0 || row >= limit) {
+                continue;
+            }
+            row += offset;
+            int d = (y * dstStride + x1) << 2;
+            if (mode == RegionBlitter.MODE_OPAQUE) {
+                if (row == prevRow) {
+                    System.arraycopy(dst, prevD, dst, d, n << 2);
+                } else if (factor != 0) {
+                    replicate(src, (row * srcStride + col[0]) << 2, dst, d, n, factor, (x1 - dx) % factor);
+                } else {
+                    copyColumns(src, row * srcStride, dst, d, n);
+                }
+                prevRow = row;
+                prevD = d;
+            } else {
+                blendColumns(src, row * srcStride, dst, d, n, mode);
+            }
+        }
+    }
+
+    private void copyColumns(byte[] src, int rowPos, byte[] dst, int d, int n) {
+        int[] col = this.col;
+        for (int i = 0; i < n; i++, d += 4) {
+            int s = (rowPos + col[i]) << 2;
+            dst[d] = src[s];
+            dst[d + 1] = src[s + 1];
+            dst[d + 2] = src[s + 2];
+            dst[d + 3] = src[s + 3];
+        }
+    }
+
+    /**
+     * each source pixel written factor times, the first one factor - phase times
+     */
+    private static void replicate(byte[] src, int s, byte[] dst, int d, int n, int factor, int phase) {
+        int dend = d + (n << 2);
+        int k = phase;
+        while (d < dend) {
+            byte r = src[s], g = src[s + 1], b = src[s + 2], a = src[s + 3];
+            for (; k < factor && d < dend; k++, d += 4) {
+                dst[d] = r;
+                dst[d + 1] = g;
+                dst[d + 2] = b;
+                dst[d + 3] = a;
+            }
+            k = 0;
+            s += 4;
+        }
+    }
+
+    private void blendColumns(byte[] src, int rowPos, byte[] dst, int d, int n, int mode) {
+        int[] col = this.col;
+        for (int i = 0; i < n; i++, d += 4) {
+            int s = (rowPos + col[i]) << 2;
+            int a = src[s + 3] & 0xff;
+            if (a == 255 || (a != 0 && mode == RegionBlitter.MODE_BITMASK)) {
+                dst[d] = src[s];
+                dst[d + 1] = src[s + 1];
+                dst[d + 2] = src[s + 2];
+                dst[d + 3] = (byte) a;
+            } else if (a != 0) {
+                Compositor.blendPixel(src, s, dst, d, a, mode == RegionBlitter.MODE_PREMULTIPLIED);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package java.awt.image;
+
+/**
+ * pixel format conversion between ImageMutable bytes and ARGB int
+ * <p>
+ * ImageMutable bytes are R,G,B,A per pixel ( ABGR as little endian int )
+ * all position and count are in pixel, not in byte
+ * <p>
+ * the *Pre methods convert between straight ARGB int and premultiplied bytes,
+ * the int side is always straight alpha as getRGB/setRGB defined
+ */
+class ScanlineConverter {
+
+    /**
+     * R,G,B,A bytes -> ARGB int
+     *
+     * @param src
+     * @param srcPos pixel index in src
+     * @param dst
+     * @param dstPos pixel index in dst
+     * @param count  pixel count
+     */
+    static void rgbaToArgb(byte[] src, int srcPos, int[] dst, int dstPos, int count) {
+        int s = srcPos * BufferedImage.BYTE_PER_PIXEL;
+        for (int d = dstPos, dmax = dstPos + count; d < dmax; d++, s += 4) {
+            dst[d] = ((src[s + 3] & 0xff) << 24)
+                    | ((src[s] & 0xff) << 16)
+                    | ((src[s + 1] & 0xff) << 8)
+                    | (src[s + 2] & 0xff);
+        }
+    }
+
+    /**
+     * ARGB int -> R,G,B,A bytes
+     *
+     * @param src
+     * @param srcPos pixel index in src
+     * @param dst
+     * @param dstPos pixel index in dst
+     * @param count  pixel count
+     */
+    static void argbToRgba(int[] src, int srcPos, byte[] dst, int dstPos, int count) {
+        int d = dstPos * BufferedImage.BYTE_PER_PIXEL;
+        for (int s = srcPos, smax = srcPos + count; s < smax; s++, d += 4) {
+            int c = src[s];
+            dst[d] = (byte) (c >> 16);
+            dst[d + 1] = (byte) (c >> 8);
+            dst[d + 2] = (byte) c;
+            dst[d + 3] = (byte) (c >>> 24);
+        }
+    }
+
+    /**
+     * rectangle R,G,B,A bytes -> ARGB int, row by row
+     *
+     * @param src
+     * @param srcPos    pixel index of first pixel in src
+     * @param srcStride pixels per row in src
+     * @param dst
+     * @param dstPos    index of first pixel in dst
+     * @param dstStride ints per row in dst
+     * @param w
+     * @param h
+     * @param pre       src bytes are premultiplied
+     */
+    static void rgbaToArgb(byte[] src, int srcPos, int srcStride, int[] dst, int dstPos, int dstStride, int w, int h, boolean pre) {
+        if (srcStride == w && dstStride == w) {
+            w *= h;
+            h = 1;
+        }
+        for (int j = 0; j < h; j++) {
+            if (pre) {
+                rgbaPreToArgb(src, srcPos, dst, dstPos, w);
+            } else {
+                rgbaToArgb(src, srcPos, dst, dstPos, w);
+            }
+            srcPos += srcStride;
+            dstPos += dstStride;
+        }
+    }
+
+    /**
+     * rectangle ARGB int -> R,G,B,A bytes, row by row
+     *
+     * @param src
+     * @param srcPos    index of first pixel in src
+     * @param srcStride ints per row in src
+     * @param dst
+     * @param dstPos    pixel index of first pixel in dst
+     * @param dstStride pixels per row in dst
+     * @param w
+     * @param h
+     * @param pre       dst bytes are premultiplied
+     */
+    static void argbToRgba(int[] src, int srcPos, int srcStride, byte[] dst, int dstPos, int dstStride, int w, int h, boolean pre) {
+        if (srcStride == w && dstStride == w) {
+            w *= h;
+            h = 1;
+        }
+        for (int j = 0; j < h; j++) {
+            if (pre) {
+                argbToRgbaPre(src, srcPos, dst, dstPos, w);
+            } else {
+                argbToRgba(src, srcPos, dst, dstPos, w);
+            }
+            srcPos += srcStride;
+            dstPos += dstStride;
+        }
+    }
+
+    /**
+     * premultiplied R,G,B,A bytes -> straight ARGB int
+     */
+    static void rgbaPreToArgb(byte[] src, int srcPos, int[] dst, int dstPos, int count) {
+        int s = srcPos * BufferedImage.BYTE_PER_PIXEL;
+        for (int d = dstPos, dmax = dstPos + count; d < dmax; d++, s += 4) {
+            int a = src[s + 3] & 0xff;
+            if (a == 255) {
+                dst[d] = 0xff000000 | ((src[s] & 0xff) << 16) | ((src[s + 1] & 0xff) << 8) | (src[s + 2] & 0xff);
+            } else if (a == 0) {
+                dst[d] = 0;
+            } else {
+                dst[d] = (a << 24)
+                        | (div255(src[s] & 0xff, a) << 16)
+                        | (div255(src[s + 1] & 0xff, a) << 8)
+                        | div255(src[s + 2] & 0xff, a);
+            }
+        }
+    }
+
+    /**
+     * straight ARGB int -> premultiplied R,G,B,A bytes
+     */
+    static void argbToRgbaPre(int[] src, int srcPos, byte[] dst, int dstPos, int count) {
+        int d = dstPos * BufferedImage.BYTE_PER_PIXEL;
+        for (int s = srcPos, smax = srcPos + count; s < smax; s++, d += 4) {
+            int c = src[s];
+            int a = c >>> 24;
+            if (a != 255) {
+                c = a == 0 ? 0 : premultiply(c);
+            }
+            dst[d] = (byte) (c >> 16);
+            dst[d + 1] = (byte) (c >> 8);
+            dst[d + 2] = (byte) c;
+            dst[d + 3] = (byte) a;
+        }
+    }
+
+    /**
+     * straight ARGB -> premultiplied ARGB
+     *
+     * @param c
+     * @return
+     */
+    static int premultiply(int c) {
+        int a = c >>> 24;
+        if (a == 255) return c;
+        if (a == 0) return 0;
+        return (a << 24)
+                | (mul255((c >> 16) & 0xff, a) << 16)
+                | (mul255((c >> 8) & 0xff, a) << 8)
+                | mul255(c & 0xff, a);
+    }
+
+    /**
+     * premultiplied ARGB -> straight ARGB
+     *
+     * @param c
+     * @return
+     */
+    static int unpremultiply(int c) {
+        int a = c >>> 24;
+        if (a == 255) return c;
+        if (a == 0) return 0;
+        return (a << 24)
+                | (div255((c >> 16) & 0xff, a) << 16)
+                | (div255((c >> 8) & 0xff, a) << 8)
+                | div255(c & 0xff, a);
+    }
+
+    /**
+     * x * 255 / a rounded , clamped to 255 , a in 1..254
+     */
+    static int div255(int x, int a) {
+        int v = (x * 255 + (a >> 1)) / a;
+        return v > 255 ? 255 : v;
+    }
+
+    /**
+     * x * a / 255 rounded , without divide
+     */
+    static int mul255(int x, int a) {
+        int t = x * a + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
+    static int getArgb(byte[] src, int pos) {
+        int s = pos * BufferedImage.BYTE_PER_PIXEL;
+        return ((src[s + 3] & 0xff) << 24)
+                | ((src[s] & 0xff) << 16)
+                | ((src[s + 1] & 0xff) << 8)
+                | (src[s + 2] & 0xff);
+    }
+
+    static void setArgb(byte[] dst, int pos, int c) {
+        int d = pos * BufferedImage.BYTE_PER_PIXEL;
+        dst[d] = (byte) (c >> 16);
+        dst[d + 1] = (byte) (c >> 8);
+        dst[d + 2] = (byte) c;
+        dst[d + 3] = (byte) (c >>> 24);
+    }
+}
@@ -0,0 +1,181 @@
+package java.awt.image;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+
+/**
+ * graphics of an image shared by threads, each public primitive and state change holds the monitor of the graphics ,
+ * a caller needing several calls to be atomic , e.g. setColor then fillRect , synchronizes on the graphics
+ * <p>
+ * the default graphics of BufferedImage, and always the one of Canvas, the present reads it from the ui thread
+ */
+class SynchronizedImageGraphics extends BufferedImageGraphics {
+
+    SynchronizedImageGraphics(BufferedImage bimg) {
+        super(bimg, false);
+    }
+
+    public synchronized Graphics create() {
+        SynchronizedImageGraphics g = new SynchronizedImageGraphics(bimg);
+        copyStateTo(g);
+        return g;
+    }
+
+    public synchronized void fillRect(int x, int y, int w, int h) {
+        super.fillRect(x, y, w, h);
+    }
+
+    public synchronized void clearRect(int x, int y, int w, int h) {
+        super.clearRect(x, y, w, h);
+    }
+
+    public synchronized void drawRect(int x, int y, int w, int h) {
+        super.drawRect(x, y, w, h);
+    }
+
+    public synchronized void drawLine(int x1, int y1, int x2, int y2) {
+        super.drawLine(x1, y1, x2, y2);
+    }
+
+    public synchronized void fillOval(int x, int y, int width, int height) {
+        super.fillOval(x, y, width, height);
+    }
+
+    public synchronized void drawOval(int x, int y, int width, int height) {
+        super.drawOval(x, y, width, height);
+    }
+
+    public synchronized void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        super.fillRoundRect(x, y, width, height, arcWidth, arcHeight);
+    }
+
+    public synchronized void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        super.drawRoundRect(x, y, width, height, arcWidth, arcHeight);
+    }
+
+    public synchronized void fillArc(int left, int top, int width, int height, int startAngle, int arcAngle) {
+        super.fillArc(left, top, width, height, startAngle, arcAngle);
+    }
+
+    public synchronized void drawArc(int left, int top, int width, int height, int startAngle, int arcAngle) {
+        super.drawArc(left, top, width, height, startAngle, arcAngle);
+    }
+
+    public synchronized void drawString(String str, int x, int y) {
+        super.drawString(str, x, y);
+    }
+
+    public synchronized void drawChars(char[] data, int offset, int length, int x, int y) {
+        super.drawChars(data, offset, length, x, y);
+    }
+
+    public synchronized void drawChars(char[] data, int offset, int length, int x, int y, int anchor) {
+        super.drawChars(data, offset, length, x, y, anchor);
+    }
+
+    public synchronized void drawTriangle(int x1, int y1, int x2, int y2, int x3, int y3) {
+        super.drawTriangle(x1, y1, x2, y2, x3, y3);
+    }
+
+    public synchronized void fillTriangle(int x0, int y0, int x1, int y1, int x2, int y2) {
+        super.fillTriangle(x0, y0, x1, y1, x2, y2);
+    }
+
+    public synchronized void fillPolygon(int[] x, int[] y, int n) {
+        super.fillPolygon(x, y, n);
+    }
+
+    public synchronized void drawPolygon(int[] x, int[] y, int n) {
+        super.drawPolygon(x, y, n);
+    }
+
+    public synchronized void drawRegion(Image src, int x_src, int y_src, int width, int height, int transform, int x_dest, int y_dest, int anchor) {
+        super.drawRegion(src, x_src, y_src, width, height, transform, x_dest, y_dest, anchor);
+    }
+
+    public synchronized void copyArea(int x_src, int y_src, int width, int height, int x_dest, int y_dest, int anchor) {
+        super.copyArea(x_src, y_src, width, height, x_dest, y_dest, anchor);
+    }
+
+    public synchronized void copyArea(int x, int y, int width, int height, int dx, int dy) {
+        super.copyArea(x, y, width, height, dx, dy);
+    }
+
+    public synchronized void setColor(Color color) {
+        super.setColor(color);
+    }
+
+    public synchronized void setFont(Font font) {
+        super.setFont(font);
+    }
+
+    public synchronized void setBackground(Color color) {
+        super.setBackground(color);
+    }
+
+    public synchronized void translate(int x, int y) {
+        super.translate(x, y);
+    }
+
+    public synchronized void translate(double tx, double ty) {
+        super.translate(tx, ty);
+    }
+
+    public synchronized void rotate(double theta) {
+        super.rotate(theta);
+    }
+
+    public synchronized void rotate(double theta, double x, double y) {
+        super.rotate(theta, x, y);
+    }
+
+    public synchronized void scale(double sx, double sy) {
+        super.scale(sx, sy);
+    }
+
+    public synchronized void shear(double shx, double shy) {
+        super.shear(shx, shy);
+    }
+
+    public synchronized void setTransform(AffineTransform tx) {
+        super.setTransform(tx);
+    }
+
+    public synchronized void transform(AffineTransform tx) {
+        super.transform(tx);
+    }
+
+    public synchronized void setClip(int x, int y, int w, int h) {
+        super.setClip(x, y, w, h);
+    }
+
+    public synchronized void clipRect(int x, int y, int w, int h) {
+        super.clipRect(x, y, w, h);
+    }
+
+    public synchronized Rectangle getClipBounds(Rectangle r) {
+        return super.getClipBounds(r);
+    }
+
+    public synchronized boolean drawImage(Image img, int x, int y,
+                                          ImageObserver observer) {
+        return super.drawImage(img, x, y, observer);
+    }
+
+    public synchronized boolean drawImage(Image img, AffineTransform transform,
+                                          ImageObserver observer) {
+        return super.drawImage(img, transform, observer);
+    }
+
+    public synchronized boolean drawImage(Image img, int x, int y, int width, int height,
+                                          ImageObserver observer) {
+        return super.drawImage(img, x, y, width, height, observer);
+    }
+
+    public synchronized boolean drawImage(Image img,
+                                          int dx1, int dy1, int dx2, int dy2,
+                                          int sx1, int sy1, int sx2, int sy2,
+                                          ImageObserver observer) {
+        return super.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, observer);
+    }
+}
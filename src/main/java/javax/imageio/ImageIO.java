@@ -10,6 +10,19 @@ import java.io.IOException;
 import java.io.InputStream;
 
 public class ImageIO {
+    //load opaque RGB images as TYPE_USHORT_565_RGB , half of memory , colors reduced
+    static boolean opaqueAsRgb565 = "true".equals(System.getProperty("awt.image.rgb565"));
+
+    public static void setOpaqueAsRgb565(boolean enable) {
+        opaqueAsRgb565 = enable;
+    }
+
+    //load images with alpha channel as TYPE_INT_ARGB_PRE , translucent pixels blend faster when drawn
+    static boolean alphaAsPremultiplied = "true".equals(System.getProperty("awt.image.premultiplied"));
+
+    public static void setAlphaAsPremultiplied(boolean enable) {
+        alphaAsPremultiplied = enable;
+    }
 
 
     public static boolean write(RenderedImage im,
@@ -39,6 +52,12 @@ public class ImageIO {
         byte[] b = GLUtil.image_parse_from_file_content(k, whd);
 
         int bitdepth = whd[2];
+        if (bitdepth == 3 && opaqueAsRgb565) {
+            return readRgb565(b, whd[0], whd[1]);
+        }
+        if (bitdepth == 4 && alphaAsPremultiplied) {
+            return readPremultiplied(b, whd[0], whd[1]);
+        }
         BufferedImage img = new BufferedImage(whd[0], whd[1], BufferedImage.TYPE_INT_ARGB);
         if (bitdepth == 4) {//argb
             img.getData().put(b);
@@ -63,9 +82,35 @@ public class ImageIO {
         } else {
             throw new RuntimeException("unknow image type");
         }
+        img.getTransparency();//scan alpha now, sprites are drawn many times
 
         return img;
     }
 
+    private static BufferedImage readRgb565(byte[] b, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_USHORT_565_RGB);
+        int[] row = new int[w];
+        for (int y = 0, i = 0; y < h; y++) {
+            for (int x = 0; x < w; x++, i += 3) {
+                row[x] = 0xff000000 | ((b[i] & 0xff) << 16) | ((b[i + 1] & 0xff) << 8) | (b[i + 2] & 0xff);
+            }
+            img.setRGB(0, y, w, 1, row, 0, w);
+        }
+        return img;
+    }
+
+    private static BufferedImage readPremultiplied(byte[] b, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+        int[] row = new int[w];
+        for (int y = 0, i = 0; y < h; y++) {
+            for (int x = 0; x < w; x++, i += 4) {
+                row[x] = ((b[i + 3] & 0xff) << 24) | ((b[i] & 0xff) << 16) | ((b[i + 1] & 0xff) << 8) | (b[i + 2] & 0xff);
+            }
+            img.setRGB(0, y, w, 1, row, 0, w);
+        }
+        img.getTransparency();
+        return img;
+    }
+
 
 }
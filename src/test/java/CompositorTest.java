@@ -0,0 +1,213 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.RasterBackend;
+import java.awt.image.RasterBackends;
+import java.util.Random;
+
+/**
+ * alpha compositing against straight alpha math , out = src * a + dst * (1 - a) , alpha out = a + dstA * (1 - a)
+ * a source alpha of 0 leaves dst as it is and 255 copies the source exactly, between them 1 step of rounding allowed.
+ * sprites of every alpha drawn by drawImage, straight and premultiplied, the global alpha and the glyph mask of
+ * the raster backends, and the java backend against the native one for the same draws
+ * run on minijvm, exit code 1 on failure
+ */
+public class CompositorTest {
+    static final int W = 256, H = 8;
+    static final float[] ALPHAS = {0f, 0.25f, 0.5f, 0.75f, 1f};
+    static int failed;
+
+    public static void main(String[] args) {
+        Random random = new Random(24);
+        //a column per source alpha, rows of different colors
+        int[] sprite = new int[W * H];
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                sprite[y * W + x] = x << 24 | (random.nextInt() & 0xffffff);
+            }
+        }
+        int[] background = new int[W * H];
+        for (int i = 0; i < background.length; i++) {
+            background[i] = random.nextInt() | 0xff000000;
+        }
+        RasterBackend[] backends = {RasterBackends.JAVA, RasterBackends.NATIVE};
+        for (RasterBackend backend : backends) {
+            RasterBackends.set(backend);
+            drawImage(sprite, background, BufferedImage.TYPE_INT_ARGB, backend.getName());
+            drawImage(sprite, background, BufferedImage.TYPE_INT_ARGB_PRE, backend.getName());
+            for (float alpha : ALPHAS) {
+                globalAlpha(backend, sprite, background, alpha, false);
+                globalAlpha(backend, sprite, background, alpha, true);
+            }
+        }
+        RasterBackends.set(RasterBackends.NATIVE);
+        backendsAgree(random);
+        System.out.println(failed == 0 ? "ok" : failed + " checks FAILED");
+        if (failed != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * a translucent sprite drawn on an opaque canvas
+     */
+    static void drawImage(int[] sprite, int[] background, int spriteType, String name) {
+        BufferedImage src = new BufferedImage(W, H, spriteType);
+        src.setRGB(0, 0, W, H, sprite, 0, W);
+        BufferedImage canvas = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        canvas.setRGB(0, 0, W, H, background, 0, W);
+        Graphics2D g = canvas.createGraphics();
+        g.drawImage(src, 0, 0, null);
+        //premultiplied pixels of low alpha keep less color
+        int tolerance = spriteType == BufferedImage.TYPE_INT_ARGB ? 1 : 2;
+        int bad = 0;
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int s = src.getRGB(x, y), d = background[y * W + x];
+                if (!near(canvas.getRGB(x, y), over(s, s >>> 24, d), s >>> 24, tolerance)) {
+                    bad++;
+                }
+            }
+        }
+        report(bad, name + " drawImage of type " + spriteType);
+    }
+
+    /**
+     * draw and drawPremultiplied of the backend with a global alpha , as a glyph mask too
+     */
+    static void globalAlpha(RasterBackend backend, int[] sprite, int[] background, float alpha, boolean font) {
+        int fontRGB = 0x3080c0;
+        byte[] dst = bytes(background, false);
+        backend.draw(dst, W, bytes(sprite, false), W, 0, 0, W, H, 1, 0, 0, 0, 1, 0, alpha, font, fontRGB);
+        int bad = 0;
+        for (int i = 0; i < W * H; i++) {
+            int s = font ? (sprite[i] & 0xff000000) | fontRGB : sprite[i];
+            //the global alpha is quantized to 1/255 first , so 2 steps allowed when it's not 0 or 1
+            int a = Math.round((sprite[i] >>> 24) * alpha);
+            if (!near(argb(dst, i), over(s, a, background[i]), a, alpha == 0f || alpha == 1f ? 1 : 2)) {
+                bad++;
+            }
+        }
+        report(bad, backend.getName() + " draw alpha " + alpha + (font ? " font" : ""));
+        if (font) {
+            return;
+        }
+        dst = bytes(background, false);
+        backend.drawPremultiplied(dst, W, bytes(sprite, true), W, 0, 0, W, H, 1, 0, 0, 0, 1, 0, alpha);
+        bad = 0;
+        for (int i = 0; i < W * H; i++) {
+            int a = Math.round((sprite[i] >>> 24) * alpha);
+            if (!near(argb(dst, i), over(sprite[i], a, background[i]), a, 3)) {
+                bad++;
+            }
+        }
+        report(bad, backend.getName() + " drawPremultiplied alpha " + alpha);
+    }
+
+    /**
+     * the same draws by both backends, with transforms which put every canvas pixel center inside a source pixel
+     */
+    static void backendsAgree(Random random) {
+        int sw = 13, sh = 11, dw = 48, dh = 40;
+        int[] src = new int[sw * sh];
+        for (int i = 0; i < src.length; i++) {
+            int a = i % 4 == 0 ? 0 : i % 4 == 1 ? 255 : random.nextInt(256);
+            src[i] = a << 24 | (random.nextInt() & 0xffffff);
+        }
+        int[] base = new int[dw * dh];
+        for (int i = 0; i < base.length; i++) {
+            base[i] = random.nextInt() | 0xff000000;
+        }
+        float[][] transforms = {
+                {1, 0, 5, 0, 1, 3},//translate
+                {2, 0, 1, 0, 2, 2},//scale 2
+                {0, -1, 30, 1, 0, 4},//rotate 90
+                {-1, 0, 40, 0, 1, 0},//mirror
+                {0, 2, 3, 2, 0, 1},//transpose and scale 2
+        };
+        for (float[] m : transforms) {
+            for (float alpha : ALPHAS) {
+                for (int kind = 0; kind < 3; kind++) {
+                    byte[] java = bytes(base, false), nat = bytes(base, false);
+                    byte[] s = bytes(src, kind == 2);
+                    RasterBackend[] backends = {RasterBackends.JAVA, RasterBackends.NATIVE};
+                    byte[][] dsts = {java, nat};
+                    for (int b = 0; b < 2; b++) {
+                        if (kind == 2) {
+                            backends[b].drawPremultiplied(dsts[b], dw, s, sw, 2, 2, dw - 4, dh - 4, m[0], m[1], m[2], m[3], m[4], m[5], alpha);
+                        } else {
+                            backends[b].draw(dsts[b], dw, s, sw, 2, 2, dw - 4, dh - 4, m[0], m[1], m[2], m[3], m[4], m[5], alpha, kind == 1, 0xc04020);
+                        }
+                    }
+                    int bad = 0;
+                    for (int i = 0; i < java.length; i++) {
+                        if (Math.abs((java[i] & 0xff) - (nat[i] & 0xff)) > 2) {
+                            bad++;
+                        }
+                    }
+                    report(bad, "java and native differ, transform " + m[0] + "," + m[1] + "," + m[3] + "," + m[4]
+                            + " alpha " + alpha + (kind == 1 ? " font" : kind == 2 ? " premultiplied" : ""));
+                }
+            }
+        }
+    }
+
+    /**
+     * straight alpha over , src color with alpha a over dst
+     */
+    static int over(int src, int a, int dst) {
+        int out = 0;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int s = (src >> shift) & 0xff, d = (dst >> shift) & 0xff;
+            out |= Math.round((s * a + d * (255 - a)) / 255f) << shift;
+        }
+        int da = dst >>> 24;
+        return out | Math.round(a + da * (255 - a) / 255f) << 24;
+    }
+
+    /**
+     * exact for alpha 0 and 255, else each channel within tolerance
+     */
+    static boolean near(int actual, int expected, int a, int tolerance) {
+        if (a == 0 || a == 255) {
+            tolerance = 0;
+        }
+        for (int shift = 0; shift < 32; shift += 8) {
+            if (Math.abs(((actual >>> shift) & 0xff) - ((expected >>> shift) & 0xff)) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * R,G,B,A bytes of ARGB pixels
+     */
+    static byte[] bytes(int[] argb, boolean premultiplied) {
+        byte[] b = new byte[argb.length * 4];
+        for (int i = 0; i < argb.length; i++) {
+            int c = argb[i], a = c >>> 24;
+            int r = (c >> 16) & 0xff, g = (c >> 8) & 0xff, bl = c & 0xff;
+            if (premultiplied) {
+                r = Math.round(r * a / 255f);
+                g = Math.round(g * a / 255f);
+                bl = Math.round(bl * a / 255f);
+            }
+            b[i * 4] = (byte) r;
+            b[i * 4 + 1] = (byte) g;
+            b[i * 4 + 2] = (byte) bl;
+            b[i * 4 + 3] = (byte) a;
+        }
+        return b;
+    }
+
+    static int argb(byte[] b, int i) {
+        return (b[i * 4 + 3] & 0xff) << 24 | (b[i * 4] & 0xff) << 16 | (b[i * 4 + 1] & 0xff) << 8 | (b[i * 4 + 2] & 0xff);
+    }
+
+    static void report(int bad, String what) {
+        if (bad != 0) {
+            System.out.println(what + " : " + bad + " pixels differ");
+            failed++;
+        }
+    }
+}
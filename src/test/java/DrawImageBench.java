@@ -0,0 +1,111 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * sprite blit at integer position, and a low resolution buffer scaled to the screen, vs the affine sampler
+ * the affine path is taken by a half pixel translation, the pixels are the same amount
+ * run on minijvm, output pixels/sec
+ */
+public class DrawImageBench {
+    static final int W = 240, H = 320, ROUNDS = 100, SIZE = 32;
+
+    public static void main(String[] args) {
+        BufferedImage canvas = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        String[] names = {"opaque     ", "bitmask    ", "translucent"};
+        for (int kind = 0; kind < names.length; kind++) {
+            BufferedImage sprite = sprite(kind);
+            run(names[kind], canvas, sprite);
+        }
+        for (int factor = 2; factor <= 3; factor++) {
+            BufferedImage buffer = new BufferedImage(W / factor, H / factor, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = buffer.createGraphics();
+            g.setColor(new Color(0x336699));
+            g.fillRect(0, 0, W / factor, H / factor);
+            g.setColor(Color.orange);
+            g.fillOval(0, 0, W / factor, H / factor);
+            buffer.getTransparency();
+            runScaled("scale " + factor + "x     ", canvas, buffer, factor);
+        }
+    }
+
+    static void runScaled(String name, BufferedImage canvas, BufferedImage buffer, int factor) {
+        Graphics2D g = canvas.createGraphics();
+        AffineTransform at = new AffineTransform();
+        int w = buffer.getWidth() * factor, h = buffer.getHeight() * factor;
+        long pixels = (long) w * h * ROUNDS;
+        for (int pass = 0; pass < 2; pass++) {
+            long t = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                g.drawImage(buffer, 0, 0, w, h, null);
+            }
+            if (pass > 0) report(name + " nearest  ", t, pixels);
+
+            t = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                at.setToTranslation(0.5, 0);
+                at.scale(factor, factor);
+                g.drawImage(buffer, at, null);
+            }
+            if (pass > 0) report(name + " affine   ", t, pixels);
+        }
+    }
+
+    static BufferedImage sprite(int kind) {
+        BufferedImage sprite = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int rgb = 0x2060a0 + x * 4 + (y << 12);
+                int a;
+                if (kind == 0) {
+                    a = 0xff;
+                } else if (kind == 1) {
+                    //a character sprite, the corners are transparent
+                    int cx = x - SIZE / 2, cy = y - SIZE / 2;
+                    a = cx * cx + cy * cy < SIZE * SIZE / 4 ? 0xff : 0;
+                } else {
+                    a = 0x40 + ((x + y) & 0x7f);
+                }
+                sprite.setRGB(x, y, (a << 24) | rgb);
+            }
+        }
+        sprite.getTransparency();
+        return sprite;
+    }
+
+    static void run(String name, BufferedImage canvas, BufferedImage sprite) {
+        Graphics2D g = canvas.createGraphics();
+        AffineTransform at = new AffineTransform();
+        int count = (W / SIZE) * (H / SIZE);
+        long pixels = (long) SIZE * SIZE * count * ROUNDS;
+        for (int pass = 0; pass < 2; pass++) {//first pass warm up
+            long t = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                for (int y = 0; y + SIZE <= H; y += SIZE) {
+                    for (int x = 0; x + SIZE <= W; x += SIZE) {
+                        g.drawImage(sprite, x, y, null);
+                    }
+                }
+            }
+            if (pass > 0) report(name + " translate", t, pixels);
+
+            t = System.nanoTime();
+            for (int r = 0; r < ROUNDS; r++) {
+                for (int y = 0; y + SIZE <= H; y += SIZE) {
+                    for (int x = 0; x + SIZE <= W; x += SIZE) {
+                        at.setToTranslation(x + 0.5, y);
+                        g.drawImage(sprite, at, null);
+                    }
+                }
+            }
+            if (pass > 0) report(name + " affine   ", t, pixels);
+        }
+    }
+
+    static void report(String name, long start, long pixelCount) {
+        long ns = System.nanoTime() - start;
+        if (ns <= 0) ns = 1;
+        System.out.println(name + " : " + (pixelCount * 1000000000L / ns) + " pixels/sec");
+    }
+}
@@ -0,0 +1,167 @@
+import org.mini.gui.GGraphics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DisplayListGraphics;
+import java.util.Random;
+
+/**
+ * drawRegion against a pixel by pixel reference of the eight J2ME sprite transforms
+ * every transform with every anchor, regions cut from opaque and 1-bit alpha sprites and from a view of a sprite sheet,
+ * drawn with clips crossing the region , through DisplayListGraphics which replays it on the graphics of the image
+ * run on minijvm, exit code 1 on failure
+ */
+public class DrawRegionTest {
+    static final int W = 48, H = 48, SW = 13, SH = 9, ROUNDS = 400;
+    static final int[] TRANSFORMS = {
+            GGraphics.TRANS_NONE, GGraphics.TRANS_MIRROR_ROT180, GGraphics.TRANS_MIRROR, GGraphics.TRANS_ROT180,
+            GGraphics.TRANS_MIRROR_ROT270, GGraphics.TRANS_ROT90, GGraphics.TRANS_ROT270, GGraphics.TRANS_MIRROR_ROT90,
+    };
+    static final int[] ANCHORS = {
+            GGraphics.LEFT | GGraphics.TOP, GGraphics.HCENTER | GGraphics.TOP, GGraphics.RIGHT | GGraphics.TOP,
+            GGraphics.LEFT | GGraphics.VCENTER, GGraphics.HCENTER | GGraphics.VCENTER, GGraphics.RIGHT | GGraphics.VCENTER,
+            GGraphics.LEFT | GGraphics.BOTTOM, GGraphics.HCENTER | GGraphics.BOTTOM, GGraphics.RIGHT | GGraphics.BOTTOM,
+    };
+
+    public static void main(String[] args) {
+        Random random = new Random(19);
+        BufferedImage opaque = sprite(SW, SH, false);
+        BufferedImage bitmask = sprite(SW, SH, true);
+        //a sprite sheet with the frame at 5,3
+        BufferedImage sheet = sprite(SW + 10, SH + 6, true);
+        BufferedImage frame = sheet.getSubimage(5, 3, SW, SH);
+        BufferedImage[] sources = {opaque, bitmask, frame};
+        int failed = 0;
+        for (BufferedImage src : sources) {
+            for (int t : TRANSFORMS) {
+                for (int anchor : ANCHORS) {
+                    failed += check(src, 0, 0, SW, SH, t, 24, 24, anchor, null);
+                    failed += check(src, 2, 1, 7, 5, t, 24, 24, anchor, new int[]{20, 22, 9, 5});
+                }
+            }
+        }
+        for (int r = 0; r < ROUNDS; r++) {
+            BufferedImage src = sources[random.nextInt(sources.length)];
+            int x = random.nextInt(SW), y = random.nextInt(SH);
+            int w = 1 + random.nextInt(SW - x), h = 1 + random.nextInt(SH - y);
+            int[] clip = null;
+            if ((r & 1) != 0) {
+                clip = new int[]{random.nextInt(W) - 8, random.nextInt(H) - 8, random.nextInt(W), random.nextInt(H)};
+            }
+            failed += check(src, x, y, w, h, TRANSFORMS[random.nextInt(8)],
+                    random.nextInt(W + 20) - 10, random.nextInt(H + 20) - 10, ANCHORS[random.nextInt(ANCHORS.length)], clip);
+        }
+        System.out.println(failed == 0 ? "ok" : failed + " regions FAILED");
+        if (failed != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * a distinct color per pixel, with bitmask every third pixel is transparent
+     */
+    static BufferedImage sprite(int w, int h, boolean bitmask) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                boolean hole = bitmask && (x + y * w) % 3 == 0;
+                img.setRGB(x, y, hole ? 0 : 0xff000000 | (x + 1) << 16 | (y + 1) << 8 | 0x80);
+            }
+        }
+        return img;
+    }
+
+    static int check(BufferedImage src, int xs, int ys, int w, int h, int transform, int xd, int yd, int anchor, int[] clip) {
+        BufferedImage canvas = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        DisplayListGraphics g = new DisplayListGraphics(canvas);
+        if (clip != null) {
+            g.setClip(clip[0], clip[1], clip[2], clip[3]);
+        }
+        g.drawRegion(src, xs, ys, w, h, transform, xd, yd, anchor);
+        g.flush();
+
+        int[] expected = new int[W * H];
+        boolean transposed = transform == GGraphics.TRANS_ROT90 || transform == GGraphics.TRANS_ROT270
+                || transform == GGraphics.TRANS_MIRROR_ROT90 || transform == GGraphics.TRANS_MIRROR_ROT270;
+        int tw = transposed ? h : w, th = transposed ? w : h;
+        int left = xd, top = yd;
+        if ((anchor & GGraphics.RIGHT) != 0) {
+            left -= tw;
+        } else if ((anchor & GGraphics.HCENTER) != 0) {
+            left -= tw / 2;
+        }
+        if ((anchor & GGraphics.BOTTOM) != 0) {
+            top -= th;
+        } else if ((anchor & GGraphics.VCENTER) != 0) {
+            top -= th / 2;
+        }
+        int cx1 = 0, cy1 = 0, cx2 = W, cy2 = H;
+        if (clip != null) {
+            cx1 = Math.max(cx1, clip[0]);
+            cy1 = Math.max(cy1, clip[1]);
+            cx2 = Math.min(cx2, clip[0] + clip[2]);
+            cy2 = Math.min(cy2, clip[1] + clip[3]);
+        }
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                //MIDP definitions, the mirror is applied before the rotation
+                int dx, dy;
+                switch (transform) {
+                    case GGraphics.TRANS_NONE:
+                        dx = x;
+                        dy = y;
+                        break;
+                    case GGraphics.TRANS_ROT90:
+                        dx = h - 1 - y;
+                        dy = x;
+                        break;
+                    case GGraphics.TRANS_ROT180:
+                        dx = w - 1 - x;
+                        dy = h - 1 - y;
+                        break;
+                    case GGraphics.TRANS_ROT270:
+                        dx = y;
+                        dy = w - 1 - x;
+                        break;
+                    case GGraphics.TRANS_MIRROR:
+                        dx = w - 1 - x;
+                        dy = y;
+                        break;
+                    case GGraphics.TRANS_MIRROR_ROT90:
+                        dx = h - 1 - y;
+                        dy = w - 1 - x;
+                        break;
+                    case GGraphics.TRANS_MIRROR_ROT180:
+                        dx = x;
+                        dy = h - 1 - y;
+                        break;
+                    default://TRANS_MIRROR_ROT270
+                        dx = y;
+                        dy = x;
+                        break;
+                }
+                dx += left;
+                dy += top;
+                if (dx >= cx1 && dy >= cy1 && dx < cx2 && dy < cy2) {
+                    expected[dy * W + dx] = src.getRGB(xs + x, ys + y);
+                }
+            }
+        }
+        int bad = 0;
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                if (canvas.getRGB(x, y) != expected[y * W + x]) {
+                    bad++;
+                }
+            }
+        }
+        if (bad != 0) {
+            System.out.println("region " + xs + "," + ys + " " + w + "x" + h + " transform " + transform
+                    + " at " + xd + "," + yd + " anchor " + anchor
+                    + (clip == null ? "" : " clip " + clip[0] + "," + clip[1] + " " + clip[2] + "x" + clip[3])
+                    + (src.isSubimageView() ? " from view" : "")
+                    + " : " + bad + " pixels differ");
+            return 1;
+        }
+        return 0;
+    }
+}
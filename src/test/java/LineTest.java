@@ -0,0 +1,91 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * drawLine against a pixel by pixel reference
+ * lines of every octant, axis lines and single points, end points inside and outside the canvas,
+ * drawn unclipped and with clips crossing them on every edge
+ * run on minijvm, exit code 1 on failure
+ */
+public class LineTest {
+    static final int W = 64, H = 64, ROUNDS = 3000;
+    static final int INK = 0xffff0000;
+
+    public static void main(String[] args) {
+        Random random = new Random(13);
+        int failed = 0;
+        //one line in each octant and on each axis through the center
+        int[][] fixed = {
+                {32, 32, 60, 40}, {32, 32, 40, 60}, {32, 32, 24, 60}, {32, 32, 4, 40},
+                {32, 32, 4, 24}, {32, 32, 24, 4}, {32, 32, 40, 4}, {32, 32, 60, 24},
+                {32, 32, 60, 32}, {32, 32, 32, 60}, {32, 32, 4, 32}, {32, 32, 32, 4},
+                {32, 32, 32, 32}, {0, 0, 63, 63}, {63, 0, 0, 63}, {-10, 5, 80, 50},
+        };
+        for (int[] l : fixed) {
+            failed += check(l[0], l[1], l[2], l[3], null);
+            //clip edges across the line, one pixel in from each side
+            failed += check(l[0], l[1], l[2], l[3], new int[]{28, 28, 9, 9});
+        }
+        for (int r = 0; r < ROUNDS; r++) {
+            int x1 = random.nextInt(W + 40) - 20, y1 = random.nextInt(H + 40) - 20;
+            int x2 = random.nextInt(W + 40) - 20, y2 = random.nextInt(H + 40) - 20;
+            int[] clip = null;
+            if ((r & 1) != 0) {
+                clip = new int[]{random.nextInt(W) - 8, random.nextInt(H) - 8, random.nextInt(W), random.nextInt(H)};
+            }
+            failed += check(x1, y1, x2, y2, clip);
+        }
+        System.out.println(failed == 0 ? "ok" : failed + " lines FAILED");
+        if (failed != 0) {
+            System.exit(1);
+        }
+    }
+
+    static int check(int x1, int y1, int x2, int y2, int[] clip) {
+        BufferedImage canvas = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = canvas.createGraphics();
+        if (clip != null) {
+            g.setClip(clip[0], clip[1], clip[2], clip[3]);
+        }
+        g.setColor(new Color(INK, true));
+        g.drawLine(x1, y1, x2, y2);
+
+        boolean[] expected = new boolean[W * H];
+        int cx1 = 0, cy1 = 0, cx2 = W, cy2 = H;
+        if (clip != null) {
+            cx1 = Math.max(cx1, clip[0]);
+            cy1 = Math.max(cy1, clip[1]);
+            cx2 = Math.min(cx2, clip[0] + clip[2]);
+            cy2 = Math.min(cy2, clip[1] + clip[3]);
+        }
+        int dx = Math.abs(x2 - x1), dy = Math.abs(y2 - y1);
+        int sx = x2 < x1 ? -1 : 1, sy = y2 < y1 ? -1 : 1;
+        int major = Math.max(dx, dy), minor = Math.min(dx, dy);
+        for (int i = 0; i <= major; i++) {
+            //the pixel nearest to the line at each step of the major axis, a tie goes away from the start
+            int m = major == 0 ? 0 : (int) ((2L * i * minor + major) / (2L * major));
+            int x = dx >= dy ? x1 + sx * i : x1 + sx * m;
+            int y = dx >= dy ? y1 + sy * m : y1 + sy * i;
+            if (x >= cx1 && y >= cy1 && x < cx2 && y < cy2) {
+                expected[y * W + x] = true;
+            }
+        }
+        int bad = 0;
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                if ((canvas.getRGB(x, y) == INK) != expected[y * W + x]) {
+                    bad++;
+                }
+            }
+        }
+        if (bad != 0) {
+            System.out.println("line " + x1 + "," + y1 + " - " + x2 + "," + y2
+                    + (clip == null ? "" : " clip " + clip[0] + "," + clip[1] + " " + clip[2] + "x" + clip[3])
+                    + " : " + bad + " pixels differ");
+            return 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,128 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * fillPolygon against a pixel by pixel reference of the even-odd rule
+ * a pixel is filled if its center is inside, a center exactly on an edge belongs to the span right of the edge.
+ * rectangles and triangles with edges through pixel centers, self intersecting stars and bow ties,
+ * random polygons partly outside the canvas, clipped and translated, and the points must not change
+ * run on minijvm, exit code 1 on failure
+ */
+public class PolygonTest {
+    static final int W = 64, H = 64, ROUNDS = 2000;
+    static final int INK = 0xff0000ff;
+
+    public static void main(String[] args) {
+        Random random = new Random(16);
+        int failed = 0;
+        int[][][] fixed = {
+                //axis aligned, edges on pixel boundaries
+                {{8, 40, 40, 8}, {8, 8, 30, 30}},
+                //triangles with edges through pixel centers
+                {{10, 50, 10}, {10, 30, 50}},
+                {{32, 60, 4}, {4, 60, 60}},
+                //pentagram, the center is outside by even-odd
+                {{32, 44, 12, 52, 20}, {4, 60, 24, 24, 60}},
+                //bow tie
+                {{4, 60, 60, 4}, {4, 60, 4, 60}},
+                //horizontal edges and a spike one pixel wide
+                {{0, 63, 63, 33, 32, 0}, {20, 20, 40, 40, 0, 40}},
+        };
+        for (int[][] p : fixed) {
+            failed += check(p[0], p[1], p[0].length, null, 0, 0);
+            failed += check(p[0], p[1], p[0].length, new int[]{20, 20, 24, 24}, 0, 0);
+            failed += check(p[0], p[1], p[0].length, null, 5, -7);
+        }
+        for (int r = 0; r < ROUNDS; r++) {
+            int n = 3 + random.nextInt(7);
+            int[] xs = new int[n], ys = new int[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = random.nextInt(W + 32) - 16;
+                ys[i] = random.nextInt(H + 32) - 16;
+            }
+            int[] clip = null;
+            if ((r & 1) != 0) {
+                clip = new int[]{random.nextInt(W) - 8, random.nextInt(H) - 8, random.nextInt(W), random.nextInt(H)};
+            }
+            failed += check(xs, ys, n, clip, (r & 2) != 0 ? random.nextInt(9) - 4 : 0, 0);
+        }
+        System.out.println(failed == 0 ? "ok" : failed + " polygons FAILED");
+        if (failed != 0) {
+            System.exit(1);
+        }
+    }
+
+    static int check(int[] xs, int[] ys, int n, int[] clip, int tx, int ty) {
+        int[] xsBefore = xs.clone(), ysBefore = ys.clone();
+        BufferedImage canvas = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = canvas.createGraphics();
+        g.translate(tx, ty);
+        if (clip != null) {
+            g.setClip(clip[0], clip[1], clip[2], clip[3]);
+        }
+        g.setColor(new Color(INK, true));
+        g.fillPolygon(xs, ys, n);
+        if (!Arrays.equals(xs, xsBefore) || !Arrays.equals(ys, ysBefore)) {
+            System.out.println("points changed by fillPolygon");
+            return 1;
+        }
+
+        int cx1 = 0, cy1 = 0, cx2 = W, cy2 = H;
+        if (clip != null) {
+            cx1 = Math.max(cx1, clip[0] + tx);
+            cy1 = Math.max(cy1, clip[1] + ty);
+            cx2 = Math.min(cx2, clip[0] + tx + clip[2]);
+            cy2 = Math.min(cy2, clip[1] + ty + clip[3]);
+        }
+        int bad = 0;
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                boolean expected = x >= cx1 && y >= cy1 && x < cx2 && y < cy2 && inside(xs, ys, n, tx, ty, x, y);
+                if ((canvas.getRGB(x, y) == INK) != expected) {
+                    bad++;
+                }
+            }
+        }
+        if (bad != 0) {
+            System.out.println("polygon " + Arrays.toString(Arrays.copyOf(xs, n)) + " " + Arrays.toString(Arrays.copyOf(ys, n))
+                    + " translate " + tx + "," + ty
+                    + (clip == null ? "" : " clip " + clip[0] + "," + clip[1] + " " + clip[2] + "x" + clip[3])
+                    + " : " + bad + " pixels differ");
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * even-odd at the center of pixel x,y in exact integer math: count the edges crossing the scanline at or left of the center
+     */
+    static boolean inside(int[] xs, int[] ys, int n, int tx, int ty, int x, int y) {
+        boolean in = false;
+        for (int i = 0; i < n; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            long x1 = xs[i] + tx, y1 = ys[i] + ty, x2 = xs[j] + tx, y2 = ys[j] + ty;
+            if (y1 > y2) {
+                long t = x1;
+                x1 = x2;
+                x2 = t;
+                t = y1;
+                y1 = y2;
+                y2 = t;
+            }
+            //the center y + 0.5 is between the ends, horizontal edges never cross
+            if (y < y1 || y >= y2) {
+                continue;
+            }
+            //crossing at (x1 * 2 * dy + dx * (2 * y + 1 - 2 * y1)) / (2 * dy) , center at (2 * x + 1) / 2
+            long dy = y2 - y1;
+            long cross = x1 * 2 * dy + (x2 - x1) * (2 * y + 1 - 2 * y1);
+            if (cross <= (2L * x + 1) * dy) {
+                in = !in;
+            }
+        }
+        return in;
+    }
+}
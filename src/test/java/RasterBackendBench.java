@@ -0,0 +1,59 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.RasterBackend;
+import java.awt.image.RasterBackends;
+
+/**
+ * throughput of raster backends , native GLMath vs pure java
+ * run on minijvm, output pixels/sec
+ */
+public class RasterBackendBench {
+    static final int W = 240, H = 320, ROUNDS = 100;
+
+    public static void main(String[] args) {
+        BufferedImage canvas = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage sprite = new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                sprite.setRGB(x, y, ((x + y) & 1) == 0 ? 0x80ff8040 : 0xff2060a0);
+            }
+        }
+        RasterBackend[] backends = {RasterBackends.NATIVE, RasterBackends.JAVA};
+        for (int i = 0; i < backends.length; i++) {
+            RasterBackends.set(backends[i]);
+            try {
+                run(backends[i].getName(), canvas, sprite);
+            } catch (Throwable t) {
+                System.out.println(backends[i].getName() + " : not available " + t);
+            }
+        }
+    }
+
+    static void run(String name, BufferedImage canvas, BufferedImage sprite) {
+        Graphics2D g = canvas.createGraphics();
+        g.setColor(new Color(0x336699));
+        g.fillRect(0, 0, W, H);//warm up
+
+        long t = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) g.fillRect(0, 0, W, H);
+        report(name + " fillRect      ", t, (long) W * H * ROUNDS);
+
+        int count = (W / 32) * (H / 32);
+        t = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            for (int y = 0; y + 32 <= H; y += 32) {
+                for (int x = 0; x + 32 <= W; x += 32) {
+                    g.drawImage(sprite, x, y, 48, 48, null);
+                }
+            }
+        }
+        report(name + " drawImage 1.5x", t, 48L * 48 * count * ROUNDS);
+    }
+
+    static void report(String name, long start, long pixelCount) {
+        long ns = System.nanoTime() - start;
+        if (ns <= 0) ns = 1;
+        System.out.println(name + " : " + (pixelCount * 1000000000L / ns) + " pixels/sec");
+    }
+}
@@ -0,0 +1,79 @@
+import java.awt.image.BufferedImage;
+
+/**
+ * micro benchmark for BufferedImage getRGB/setRGB
+ * per pixel calls (old way) vs bulk row conversion
+ * run on minijvm, output pixels/sec
+ */
+public class RgbBulkBench {
+    static final int W = 240, H = 320, ROUNDS = 50;
+
+    public static void main(String[] args) {
+        BufferedImage img = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = new int[W * H];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 | (i * 0x010203);
+        }
+
+        //warm up
+        perPixelSet(img, pixels);
+        perPixelGet(img, pixels);
+        img.setRGB(0, 0, W, H, pixels, 0, W);
+        img.getRGB(0, 0, W, H, pixels, 0, W);
+
+        long t = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) perPixelSet(img, pixels);
+        report("setRGB per pixel", t);
+
+        t = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) img.setRGB(0, 0, W, H, pixels, 0, W);
+        report("setRGB bulk     ", t);
+
+        t = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) perPixelGet(img, pixels);
+        report("getRGB per pixel", t);
+
+        t = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) img.getRGB(0, 0, W, H, pixels, 0, W);
+        report("getRGB bulk     ", t);
+
+        //sub rectangle with stride
+        t = System.nanoTime();
+        for (int r = 0; r < ROUNDS * 4; r++) img.getRGB(W / 4, H / 4, W / 2, H / 2, pixels, 3, W);
+        report("getRGB sub rect ", t, W / 2 * H / 2 * ROUNDS * 4);
+
+        img.setIntArgbStore(true);
+        t = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            img.setRGB(0, 0, W, H, pixels, 0, W);
+            img.getData();
+        }
+        report("setRGB int store + sync", t);
+    }
+
+    static void perPixelSet(BufferedImage img, int[] pixels) {
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                img.setRGB(x, y, pixels[y * W + x]);
+            }
+        }
+    }
+
+    static void perPixelGet(BufferedImage img, int[] pixels) {
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                pixels[y * W + x] = img.getRGB(x, y);
+            }
+        }
+    }
+
+    static void report(String name, long start) {
+        report(name, start, W * H * ROUNDS);
+    }
+
+    static void report(String name, long start, long pixelCount) {
+        long ns = System.nanoTime() - start;
+        if (ns <= 0) ns = 1;
+        System.out.println(name + " : " + (pixelCount * 1000000000L / ns) + " pixels/sec");
+    }
+}
@@ -0,0 +1,160 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * two threads drawing through the shared graphics of createGraphics(false)
+ * each call is atomic: a blit sees the clip and translation of one setClip or translate, never a mix
+ * of two, and translations done in pairs add up to none.
+ * then each call is checked to wait for the monitor of the graphics held by another thread
+ * run on minijvm, exit code 1 on failure
+ */
+public class SharedGraphicsTest {
+    static final int W = 64, H = 64, ROUNDS = 20000;
+    //the two clip rectangles, same size so a mixed clip is a rectangle outside both
+    static final int[][] CLIPS = {{0, 0, 16, 16}, {40, 40, 16, 16}};
+    //a clip set between the pair of translations is moved by it
+    static final int STEP = 3;
+
+    public static void main(String[] args) throws Exception {
+        BufferedImage canvas = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage sprite = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                sprite.setRGB(x, y, 0xffff0000);
+            }
+        }
+        Graphics2D g = canvas.createGraphics(false);
+        g.setColor(Color.blue);
+
+        final Throwable[] error = new Throwable[1];
+        //one thread switches the clip and draws, the other translates around its blit in pairs
+        Thread clipper = new Thread(() -> {
+            try {
+                for (int r = 0; r < ROUNDS; r++) {
+                    int[] c = CLIPS[r & 1];
+                    g.setClip(c[0], c[1], c[2], c[3]);
+                    g.drawImage(sprite, 0, 0, null);
+                    g.drawLine(0, 0, W, H);
+                    g.fillOval(0, 0, W, H);
+                }
+            } catch (Throwable t) {
+                error[0] = t;
+            }
+        });
+        Thread translator = new Thread(() -> {
+            try {
+                for (int r = 0; r < ROUNDS; r++) {
+                    g.translate(STEP, STEP);
+                    g.drawImage(sprite, -STEP, -STEP, null);
+                    g.translate(-STEP, -STEP);
+                }
+            } catch (Throwable t) {
+                error[0] = t;
+            }
+        });
+        Thread[] threads = {clipper, translator};
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        boolean ok = error[0] == null;
+        if (!ok) {
+            error[0].printStackTrace();
+        }
+        if (!g.getTransform().isIdentity() || g.getTranslateX() != 0 || g.getTranslateY() != 0) {
+            System.out.println("transform not identity: " + g.getTransform());
+            ok = false;
+        }
+        int clipX = g.getClipX(), clipY = g.getClipY();
+        boolean clipOk = false;
+        for (int[] c : CLIPS) {
+            for (int d = 0; d <= STEP; d += STEP) {
+                clipOk |= clipX == c[0] + d && clipY == c[1] + d && g.getClipWidth() == c[2] && g.getClipHeight() == c[3];
+            }
+        }
+        if (!clipOk) {
+            System.out.println("clip torn: " + clipX + "," + clipY + " " + g.getClipWidth() + "x" + g.getClipHeight());
+            ok = false;
+        }
+        int outside = 0;
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                if (!inside(x, y) && canvas.getRGB(x, y) != 0) {
+                    outside++;
+                }
+            }
+        }
+        if (outside != 0) {
+            System.out.println(outside + " pixels drawn outside both clips");
+            ok = false;
+        }
+        ok &= probeLocks(g, sprite);
+        System.out.println(ok ? "ok" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * every call must wait while another thread holds the monitor of the graphics
+     */
+    static boolean probeLocks(Graphics2D g, BufferedImage sprite) throws Exception {
+        Object[][] calls = {
+                {"drawImage", (Runnable) () -> g.drawImage(sprite, 0, 0, null)},
+                {"drawImage scaled", (Runnable) () -> g.drawImage(sprite, 0, 0, 8, 8, null)},
+                {"drawImage transform", (Runnable) () -> g.drawImage(sprite, new AffineTransform(), null)},
+                {"drawLine", (Runnable) () -> g.drawLine(0, 0, 8, 8)},
+                {"drawRect", (Runnable) () -> g.drawRect(0, 0, 8, 8)},
+                {"fillRect", (Runnable) () -> g.fillRect(0, 0, 8, 8)},
+                {"fillOval", (Runnable) () -> g.fillOval(0, 0, 8, 8)},
+                {"drawOval", (Runnable) () -> g.drawOval(0, 0, 8, 8)},
+                {"fillPolygon", (Runnable) () -> g.fillPolygon(new int[]{0, 8, 0}, new int[]{0, 0, 8}, 3)},
+                {"copyArea", (Runnable) () -> g.copyArea(0, 0, 8, 8, 1, 1)},
+                {"setColor", (Runnable) () -> g.setColor(Color.red)},
+                {"setBackground", (Runnable) () -> g.setBackground(Color.red)},
+                {"setClip", (Runnable) () -> g.setClip(0, 0, W, H)},
+                {"clipRect", (Runnable) () -> g.clipRect(0, 0, W, H)},
+                {"translate", (Runnable) () -> g.translate(0, 0)},
+                {"rotate", (Runnable) () -> g.rotate(0)},
+                {"setTransform", (Runnable) () -> g.setTransform(new AffineTransform())},
+        };
+        boolean ok = true;
+        for (Object[] call : calls) {
+            final boolean[] state = new boolean[2];//started, returned
+            Thread t = new Thread(() -> {
+                state[0] = true;
+                ((Runnable) call[1]).run();
+                synchronized (state) {
+                    state[1] = true;
+                }
+            });
+            synchronized (g) {
+                t.start();
+                while (!state[0]) {
+                    Thread.sleep(1);
+                }
+                Thread.sleep(20);
+                synchronized (state) {
+                    if (state[1]) {
+                        System.out.println(call[0] + " does not hold the lock");
+                        ok = false;
+                    }
+                }
+            }
+            t.join();
+        }
+        return ok;
+    }
+
+    static boolean inside(int x, int y) {
+        for (int[] c : CLIPS) {
+            for (int d = 0; d <= STEP; d += STEP) {
+                if (x >= c[0] + d && y >= c[1] + d && x < c[0] + d + c[2] && y < c[1] + d + c[3]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,180 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * copy on write of getSubimage views against int[] models of parent and view
+ * a view reads the parent pixels until one of them is written, then each keeps its own:
+ * writes to the parent never show in the view and writes to the view never show in the parent.
+ * by setRGB, bulk setRGB and graphics, for ARGB, int store and compact images , views of views,
+ * and the parent drawn with its own view as source , at its size and scaled
+ * run on minijvm, exit code 1 on failure
+ */
+public class SubimageViewTest {
+    static final int W = 16, H = 12;
+    static final int VX = 3, VY = 2, VW = 8, VH = 6;
+    static int failed;
+
+    public static void main(String[] args) {
+        int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_USHORT_565_RGB};
+        for (int type : types) {
+            for (int intStore = 0; intStore < 2; intStore++) {
+                String name = type + (intStore != 0 ? " int store" : "");
+                parentWritten(type, intStore != 0, name);
+                viewWritten(type, intStore != 0, name);
+                parentDrawnFromView(type, intStore != 0, name);
+                parentDrawnScaledFromView(type, intStore != 0, name);
+            }
+        }
+        System.out.println(failed == 0 ? "ok" : failed + " checks FAILED");
+        if (failed != 0) {
+            System.exit(1);
+        }
+    }
+
+    static BufferedImage parent(int type, boolean intStore) {
+        BufferedImage img = new BufferedImage(W, H, type);
+        img.setIntArgbStore(intStore);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                //models are read back by getRGB, the colors written later are exact in 565
+                img.setRGB(x, y, 0xff000000 | (x * 8) << 16 | (y * 4) << 8 | 0x18);
+            }
+        }
+        return img;
+    }
+
+    static int[] model(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        int[] m = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                m[y * w + x] = img.getRGB(x, y);
+            }
+        }
+        return m;
+    }
+
+    static void parentWritten(int type, boolean intStore, String name) {
+        BufferedImage parent = parent(type, intStore);
+        BufferedImage view = parent.getSubimage(VX, VY, VW, VH);
+        BufferedImage inner = view.getSubimage(1, 1, 4, 3);
+        int[] p = model(parent);
+        compare(view, sub(p, W, VX, VY, VW, VH), name + " view before write");
+        compare(inner, sub(p, W, VX + 1, VY + 1, 4, 3), name + " view of view before write");
+        int[] v = model(view), in = model(inner);
+
+        parent.setRGB(VX + 1, VY + 1, 0xff0000ff);
+        p[(VY + 1) * W + VX + 1] = 0xff0000ff;
+        compare(parent, p, name + " parent setRGB");
+        compare(view, v, name + " view after parent setRGB");
+        compare(inner, in, name + " view of view after parent setRGB");
+
+        //a new view sees the parent as it is now, then a bulk write and a fill of the parent
+        view = parent.getSubimage(VX, VY, VW, VH);
+        v = model(view);
+        int[] row = new int[W];
+        Arrays.fill(row, 0xffff0000);
+        parent.setRGB(0, VY + 2, W, 1, row, 0, W);
+        System.arraycopy(row, 0, p, (VY + 2) * W, W);
+        compare(view, v, name + " view after parent bulk setRGB");
+        view = parent.getSubimage(VX, VY, VW, VH);
+        v = model(view);
+        Graphics2D g = parent.createGraphics();
+        g.setColor(new Color(0xff00ff00, true));
+        g.fillRect(0, 0, W, H);
+        Arrays.fill(p, 0xff00ff00);
+        compare(parent, p, name + " parent fillRect");
+        compare(view, v, name + " view after parent fillRect");
+    }
+
+    static void viewWritten(int type, boolean intStore, String name) {
+        BufferedImage parent = parent(type, intStore);
+        BufferedImage view = parent.getSubimage(VX, VY, VW, VH);
+        int[] p = model(parent), v = model(view);
+
+        view.setRGB(0, 0, 0xff0000ff);
+        v[0] = 0xff0000ff;
+        compare(view, v, name + " view setRGB");
+        compare(parent, p, name + " parent after view setRGB");
+
+        BufferedImage second = parent.getSubimage(VX, VY, VW, VH);
+        int[] s = model(second);
+        Graphics2D g = second.createGraphics();
+        g.setColor(new Color(0xffff0000, true));
+        g.fillRect(1, 1, 3, 3);
+        for (int y = 1; y < 4; y++) {
+            for (int x = 1; x < 4; x++) {
+                s[y * VW + x] = 0xffff0000;
+            }
+        }
+        compare(second, s, name + " view fillRect");
+        compare(parent, p, name + " parent after view fillRect");
+        compare(view, v, name + " other view after view fillRect");
+    }
+
+    /**
+     * the source is a view of the canvas , it must be read as it was before the canvas written
+     */
+    static void parentDrawnFromView(int type, boolean intStore, String name) {
+        BufferedImage parent = parent(type, intStore);
+        BufferedImage view = parent.getSubimage(VX, VY, VW, VH);
+        int[] p = model(parent), v = model(view);
+        Graphics2D g = parent.createGraphics();
+        g.drawImage(view, VX + 2, VY + 1, null);
+        for (int y = 0; y < VH; y++) {
+            for (int x = 0; x < VW; x++) {
+                int dx = VX + 2 + x, dy = VY + 1 + y;
+                if (dx < W && dy < H) {
+                    p[dy * W + dx] = v[y * VW + x];
+                }
+            }
+        }
+        compare(parent, p, name + " parent drawn from its view");
+        compare(view, v, name + " view after drawn to parent");
+    }
+
+    /**
+     * the same scaled by 2 , the view origin must be read after the view copied out
+     */
+    static void parentDrawnScaledFromView(int type, boolean intStore, String name) {
+        BufferedImage parent = parent(type, intStore);
+        BufferedImage view = parent.getSubimage(VX, VY, VW, VH);
+        int[] p = model(parent), v = model(view);
+        Graphics2D g = parent.createGraphics();
+        g.drawImage(view, 1, 0, VW * 2, VH * 2, null);
+        for (int y = 0; y < VH * 2; y++) {
+            for (int x = 0; x < VW * 2; x++) {
+                int dx = 1 + x;
+                if (dx < W && y < H) {
+                    p[y * W + dx] = v[(y / 2) * VW + x / 2];
+                }
+            }
+        }
+        compare(parent, p, name + " parent drawn scaled from its view");
+        compare(view, v, name + " view after drawn scaled to parent");
+    }
+
+    static int[] sub(int[] m, int stride, int x, int y, int w, int h) {
+        int[] s = new int[w * h];
+        for (int j = 0; j < h; j++) {
+            System.arraycopy(m, (y + j) * stride + x, s, j * w, w);
+        }
+        return s;
+    }
+
+    static void compare(BufferedImage img, int[] expected, String what) {
+        int[] actual = model(img);
+        int bad = 0;
+        for (int i = 0; i < actual.length; i++) {
+            if (actual[i] != expected[i]) {
+                bad++;
+            }
+        }
+        if (bad != 0) {
+            System.out.println(what + " : " + bad + " pixels differ");
+            failed++;
+        }
+    }
+}